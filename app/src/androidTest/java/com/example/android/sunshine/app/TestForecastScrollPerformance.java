@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.utils.PollingCheck;
+import com.example.android.sunshine.core.ForecastDates;
+
+/**
+ * Scrolls the forecast list back and forth a fixed number of times and checks the frame and
+ * bind times recorded by {@link ScrollJankMonitor} against budgets.
+ * <p/>
+ * The percentiles are logged and also reported as instrumentation status, so they show up in
+ * the output of {@code adb shell am instrument -r}. If a change pushes a number over its
+ * budget, the test fails.
+ */
+public class TestForecastScrollPerformance extends ActivityInstrumentationTestCase2<MainActivity> {
+    private static final String LOG_TAG = TestForecastScrollPerformance.class.getSimpleName();
+
+    private static final int DAYS = 14;
+    // One id per condition that has art: storm, light rain, rain, snow, fog, clear,
+    // light clouds and clouds
+    private static final int[] WEATHER_IDS = {200, 300, 502, 600, 741, 800, 801, 803};
+    private static final int SCROLL_PASSES = 5;
+    private static final long SCROLL_TIMEOUT_MILLIS = 10000;
+
+    // Regression budgets
+    private static final double MAX_FRAME_P90_MILLIS = 25;
+    private static final double MAX_JANKY_FRAME_PERCENT = 5;
+    private static final double MAX_BIND_P90_MILLIS = 2;
+
+    public TestForecastScrollPerformance() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getInstrumentation().getTargetContext();
+        deleteAllRecords(context);
+        insertForecast(context, Utility.getPreferredLocation(context));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        deleteAllRecords(getInstrumentation().getTargetContext());
+    }
+
+    public void testScrollPerformance() throws Throwable {
+        MainActivity activity = getActivity();
+        final RecyclerView list = (RecyclerView) activity.findViewById(R.id.recyclerview_forecast);
+        final ScrollJankMonitor monitor = ((ForecastFragment) activity.getSupportFragmentManager()
+                .findFragmentById(R.id.fragment_forecast)).getScrollJankMonitor();
+
+        new PollingCheck(SCROLL_TIMEOUT_MILLIS) {
+            @Override
+            protected boolean check() {
+                return list.getAdapter().getItemCount() == DAYS;
+            }
+        }.run();
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.reset();
+            }
+        });
+        for (int pass = 0; pass < SCROLL_PASSES; pass++) {
+            scrollTo(list, DAYS - 1);
+            scrollTo(list, 0);
+        }
+
+        final ScrollJankMonitor.Report[] reports = new ScrollJankMonitor.Report[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                reports[0] = monitor.getReport();
+            }
+        });
+        ScrollJankMonitor.Report report = reports[0];
+        Log.i(LOG_TAG, report.toString());
+
+        Bundle results = new Bundle();
+        results.putInt("frame_count", report.getFrameCount());
+        results.putInt("janky_frame_count", report.getJankyFrameCount());
+        results.putDouble("frame_p50_ms", report.getFrameP50Millis());
+        results.putDouble("frame_p90_ms", report.getFrameP90Millis());
+        results.putDouble("frame_p99_ms", report.getFrameP99Millis());
+        results.putDouble("bind_p50_ms", report.getBindP50Millis());
+        results.putDouble("bind_p90_ms", report.getBindP90Millis());
+        results.putDouble("bind_max_ms", report.getBindMaxMillis());
+        getInstrumentation().sendStatus(0, results);
+
+        assertTrue("Error: No binds recorded", report.getBindCount() > 0);
+        assertTrue("Error: Bind p90 " + report.getBindP90Millis() + "ms is over budget",
+                report.getBindP90Millis() <= MAX_BIND_P90_MILLIS);
+
+        // Frame times are only recorded on Jelly Bean and up
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            assertTrue("Error: No frames recorded", report.getFrameCount() > 0);
+            assertTrue("Error: Frame p90 " + report.getFrameP90Millis() + "ms is over budget",
+                    report.getFrameP90Millis() <= MAX_FRAME_P90_MILLIS);
+            double jankyPercent = 100.0 * report.getJankyFrameCount() / report.getFrameCount();
+            assertTrue("Error: " + jankyPercent + "% of frames were janky",
+                    jankyPercent <= MAX_JANKY_FRAME_PERCENT);
+        }
+    }
+
+    private void scrollTo(final RecyclerView list, final int position) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                list.smoothScrollToPosition(position);
+            }
+        });
+        // Give the scroll a frame to start before waiting for it to settle
+        getInstrumentation().waitForIdleSync();
+        new PollingCheck(SCROLL_TIMEOUT_MILLIS) {
+            @Override
+            protected boolean check() {
+                return list.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+            }
+        }.run();
+    }
+
+    private static void insertForecast(Context context, String locationSetting) {
+        ContentValues locationValues = new ContentValues();
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, "North Pole");
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -147.353);
+        Uri locationUri = context.getContentResolver().insert(
+                WeatherContract.LocationEntry.CONTENT_URI, locationValues);
+        long locationId = Long.parseLong(locationUri.getLastPathSegment());
+
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE,
+                    today + i * ForecastDates.DAY_IN_MILLIS);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, 1.1);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 1.2);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1.3);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 20 + i);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 10 - i);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            // Cycle through the conditions so rows use different icons
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                    WEATHER_IDS[i % WEATHER_IDS.length]);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+            days[i] = weatherValues;
+        }
+        context.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, days);
+    }
+
+    private static void deleteAllRecords(Context context) {
+        context.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI, null, null);
+    }
+}
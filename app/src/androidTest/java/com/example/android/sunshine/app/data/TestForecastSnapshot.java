@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.test.AndroidTestCase;
+
+public class TestForecastSnapshot extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    private void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testEmptySnapshot() {
+        ForecastSnapshot snapshot = ForecastSnapshot.query(mContext.getContentResolver(),
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+
+        assertEquals("Error: Expected an empty snapshot", 0, snapshot.size());
+        assertEquals(TestUtilities.TEST_LOCATION, snapshot.getLocationSetting());
+        assertNull(snapshot.getCoordLat());
+        assertEquals(-1, snapshot.getPositionForDate(TestUtilities.TEST_DATE));
+    }
+
+    public void testSnapshotMatchesProvider() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        ContentValues[] values = TestProvider.createBulkInsertWeatherValues(locationRowId);
+        mContext.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, values);
+
+        ForecastSnapshot snapshot = ForecastSnapshot.query(mContext.getContentResolver(),
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+
+        assertEquals("Error: Snapshot doesn't hold every inserted day",
+                values.length, snapshot.size());
+        assertEquals("64.7488", snapshot.getCoordLat());
+        assertEquals("-147.353", snapshot.getCoordLong());
+        for (int i = 0; i < values.length; i++) {
+            ContentValues expected = values[i];
+            long date = expected.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+            assertEquals("Error: Days out of order at " + i, date, snapshot.getDate(i));
+            assertEquals(i, snapshot.getPositionForDate(date));
+            assertEquals(expected.getAsInteger(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID)
+                    .intValue(), snapshot.getWeatherId(i));
+            assertEquals(expected.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP),
+                    snapshot.getHigh(i), 0.001);
+            assertEquals(expected.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP),
+                    snapshot.getLow(i), 0.001);
+            assertEquals("Asteroids", snapshot.getDescription(i));
+        }
+
+        // Repeated descriptions share a single instance
+        assertSame(snapshot.getDescription(0), snapshot.getDescription(values.length - 1));
+    }
+
+    public void testCacheRoundTrip() {
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        ContentValues[] values = TestProvider.createBulkInsertWeatherValues(locationRowId);
+        mContext.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, values);
+        ForecastSnapshot snapshot = ForecastSnapshot.query(mContext.getContentResolver(),
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+
+        ForecastSnapshotCache.save(mContext, snapshot);
+        ForecastSnapshot cached = ForecastSnapshotCache.load(mContext,
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+
+        assertNotNull("Error: Saved snapshot couldn't be read back", cached);
+        assertEquals(snapshot.size(), cached.size());
+        assertEquals(snapshot.getCoordLat(), cached.getCoordLat());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(snapshot.getId(i), cached.getId(i));
+            assertEquals(snapshot.getDate(i), cached.getDate(i));
+            assertEquals(snapshot.getWeatherId(i), cached.getWeatherId(i));
+            assertEquals(snapshot.getDescription(i), cached.getDescription(i));
+            assertEquals(snapshot.getHigh(i), cached.getHigh(i), 0);
+            assertEquals(snapshot.getLow(i), cached.getLow(i), 0);
+        }
+
+        // Days before the start date are left out
+        long thirdDay = snapshot.getDate(2);
+        cached = ForecastSnapshotCache.load(mContext, TestUtilities.TEST_LOCATION, thirdDay);
+        assertEquals(snapshot.size() - 2, cached.size());
+        assertEquals(thirdDay, cached.getDate(0));
+
+        // The cache only answers for the location it was saved for
+        assertNull(ForecastSnapshotCache.load(mContext, "94043", TestUtilities.TEST_DATE));
+    }
+
+    public void testStoreReusesSnapshotUntilInvalidated() {
+        ForecastSnapshotStore store = ForecastSnapshotStore.getInstance(mContext);
+        ForecastSnapshot first = store.getSnapshot();
+        assertSame("Error: Unchanged data was queried again", first, store.getSnapshot());
+
+        store.invalidate();
+        assertNotSame("Error: Invalidated snapshot was reused", first, store.getSnapshot());
+    }
+
+    public void testStoreQueriesOncePerWrite() {
+        ForecastSnapshotStore store = ForecastSnapshotStore.getInstance(mContext);
+        ForecastSnapshot before = store.getSnapshot();
+
+        TestUtilities.TestContentObserver tco = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, tco);
+        long locationRowId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        ContentValues[] values = TestProvider.createBulkInsertWeatherValues(locationRowId);
+        mContext.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, values);
+
+        // The write is seen straight away, without waiting for the change notification
+        ForecastSnapshot after = store.getSnapshot();
+        assertNotSame("Error: Snapshot from before the write was reused", before, after);
+
+        // and the notification arriving later doesn't cause a second query
+        tco.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(tco);
+        assertSame("Error: Change notification made the store query again",
+                after, store.getSnapshot());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+
+/**
+ * The values {@link DetailFragment} shows for one day, copied out of a cursor.
+ */
+public final class DetailDay {
+
+  private final long mDate;
+  private final int mWeatherId;
+  private final double mHigh;
+  private final double mLow;
+  private final float mHumidity;
+  private final float mPressure;
+  private final float mWindSpeed;
+  private final float mWindDirection;
+
+  private DetailDay(long date, int weatherId, double high, double low, float humidity,
+                    float pressure, float windSpeed, float windDirection) {
+    mDate = date;
+    mWeatherId = weatherId;
+    mHigh = high;
+    mLow = low;
+    mHumidity = humidity;
+    mPressure = pressure;
+    mWindSpeed = windSpeed;
+    mWindDirection = windDirection;
+  }
+
+  /**
+   * Reads the current row of a cursor with {@link DetailFragment#DETAIL_COLUMNS}.
+   */
+  static DetailDay fromCursor(Cursor cursor) {
+    return new DetailDay(
+      cursor.getLong(DetailFragment.COL_WEATHER_DATE),
+      cursor.getInt(DetailFragment.COL_WEATHER_CONDITION_ID),
+      cursor.getDouble(DetailFragment.COL_WEATHER_MAX_TEMP),
+      cursor.getDouble(DetailFragment.COL_WEATHER_MIN_TEMP),
+      cursor.getFloat(DetailFragment.COL_WEATHER_HUMIDITY),
+      cursor.getFloat(DetailFragment.COL_WEATHER_PRESSURE),
+      cursor.getFloat(DetailFragment.COL_WEATHER_WIND_SPEED),
+      cursor.getFloat(DetailFragment.COL_WEATHER_DEGREES));
+  }
+
+  public long getDate() {
+    return mDate;
+  }
+
+  public int getWeatherId() {
+    return mWeatherId;
+  }
+
+  public double getHigh() {
+    return mHigh;
+  }
+
+  public double getLow() {
+    return mLow;
+  }
+
+  public float getHumidity() {
+    return mHumidity;
+  }
+
+  public float getPressure() {
+    return mPressure;
+  }
+
+  public float getWindSpeed() {
+    return mWindSpeed;
+  }
+
+  public float getWindDirection() {
+    return mWindDirection;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.support.v4.util.LongSparseArray;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the details of every forecast day for a location in memory, so that in two-pane mode
+ * a {@link DetailFragment} can show the selected day as soon as it is created instead of
+ * waiting on its own query.
+ * <p/>
+ * All the days are read with a single query on a background thread. Any change to the weather
+ * table drops them and starts a new query; listeners are told when fresh details are in.
+ * Must only be used from the main thread.
+ */
+public class DetailPrefetcher {
+
+  public interface Listener {
+    void onDetailsPrefetched();
+  }
+
+  private final Context mContext;
+  private final List<Listener> mListeners = new ArrayList<>();
+  private final ContentObserver mObserver = new ContentObserver(new Handler()) {
+    @Override
+    public void onChange(boolean selfChange) {
+      mDays = null;
+      prefetch();
+    }
+  };
+
+  private String mLocationSetting;
+  private LongSparseArray<DetailDay> mDays;
+  private PrefetchTask mTask;
+  private boolean mStarted;
+
+  public DetailPrefetcher(Context context, String locationSetting) {
+    mContext = context.getApplicationContext();
+    mLocationSetting = locationSetting;
+  }
+
+  /**
+   * Starts watching the weather table and loads the details if they aren't in memory.
+   */
+  public void start() {
+    if (mStarted) {
+      return;
+    }
+    mStarted = true;
+    mContext.getContentResolver().registerContentObserver(
+      WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+    if (mDays == null) {
+      prefetch();
+    }
+  }
+
+  /**
+   * Stops watching for changes. The details in memory can't be trusted until the next
+   * {@link #start()}, so they are dropped.
+   */
+  public void stop() {
+    if (!mStarted) {
+      return;
+    }
+    mStarted = false;
+    mContext.getContentResolver().unregisterContentObserver(mObserver);
+    cancel();
+    mDays = null;
+  }
+
+  public void setLocationSetting(String locationSetting) {
+    if (!locationSetting.equals(mLocationSetting)) {
+      mLocationSetting = locationSetting;
+      mDays = null;
+      if (mStarted) {
+        prefetch();
+      }
+    }
+  }
+
+  public void addListener(Listener listener) {
+    mListeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    mListeners.remove(listener);
+  }
+
+  /**
+   * @return the details for the day in {@code weatherUri}, a
+   * {@link WeatherContract.WeatherEntry#buildWeatherLocationWithDate} URI, or null if they
+   * haven't been loaded
+   */
+  public DetailDay get(Uri weatherUri) {
+    if (mDays == null || !mLocationSetting.equals(
+      WeatherContract.WeatherEntry.getLocationSettingFromUri(weatherUri))) {
+      return null;
+    }
+    return mDays.get(WeatherContract.WeatherEntry.getDateFromUri(weatherUri));
+  }
+
+  private void prefetch() {
+    cancel();
+    mTask = new PrefetchTask(mLocationSetting);
+    mTask.execute();
+  }
+
+  private void cancel() {
+    if (mTask != null) {
+      mTask.cancel(false);
+      mTask = null;
+    }
+  }
+
+  private void onPrefetched(PrefetchTask task, LongSparseArray<DetailDay> days) {
+    if (task != mTask) {
+      return;
+    }
+    mTask = null;
+    mDays = days;
+    for (int i = mListeners.size() - 1; i >= 0; i--) {
+      mListeners.get(i).onDetailsPrefetched();
+    }
+  }
+
+  private class PrefetchTask extends AsyncTask<Void, Void, LongSparseArray<DetailDay>> {
+    private final String mTaskLocationSetting;
+
+    PrefetchTask(String locationSetting) {
+      mTaskLocationSetting = locationSetting;
+    }
+
+    @Override
+    protected LongSparseArray<DetailDay> doInBackground(Void... params) {
+      Uri uri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+        mTaskLocationSetting, System.currentTimeMillis());
+      Cursor cursor = mContext.getContentResolver().query(uri, DetailFragment.DETAIL_COLUMNS,
+        null, null, null);
+      if (cursor == null) {
+        return null;
+      }
+      try {
+        LongSparseArray<DetailDay> days = new LongSparseArray<>(cursor.getCount());
+        while (cursor.moveToNext() && !isCancelled()) {
+          DetailDay day = DetailDay.fromCursor(cursor);
+          days.put(day.getDate(), day);
+        }
+        return days;
+      } finally {
+        cursor.close();
+      }
+    }
+
+    @Override
+    protected void onPostExecute(LongSparseArray<DetailDay> days) {
+      if (days != null) {
+        onPrefetched(this, days);
+      }
+    }
+  }
+}
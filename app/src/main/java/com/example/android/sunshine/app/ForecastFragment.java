@@ -20,7 +20,6 @@ import android.app.Activity;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.TypedArray;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -28,7 +27,6 @@ import android.preference.PreferenceManager;
 import android.support.design.widget.AppBarLayout;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
@@ -51,10 +49,11 @@ import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 /**
  * Encapsulates fetching the forecast and displaying it as a {@link android.support.v7.widget.RecyclerView} layout.
  */
-public class ForecastFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor>, SharedPreferences.OnSharedPreferenceChangeListener {
+public class ForecastFragment extends Fragment implements LoaderManager.LoaderCallbacks<ForecastRows>, SharedPreferences.OnSharedPreferenceChangeListener {
   public static final String LOG_TAG = ForecastFragment.class.getSimpleName();
   private ForecastAdapter mForecastAdapter;
   private RecyclerView mRecyclerView;
+  private ScrollJankMonitor mScrollJankMonitor;
   private boolean mUseTodayLayout, mAutoSelectView;
   private int mChoiceMode;
   private boolean mHoldForTransition;
@@ -63,37 +62,6 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
   private static final String SELECTED_KEY = "selected_position";
 
   private static final int FORECAST_LOADER = 0;
-  // For the forecast view we're showing only a small subset of the stored data.
-  // Specify the columns we need.
-  private static final String[] FORECAST_COLUMNS = {
-    // In this case the id needs to be fully qualified with a table name, since
-    // the content provider joins the location & weather tables in the background
-    // (both have an _id column)
-    // On the one hand, that's annoying.  On the other, you can search the weather table
-    // using the location set by the user, which is only in the Location table.
-    // So the convenience is worth it.
-    WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
-    WeatherContract.WeatherEntry.COLUMN_DATE,
-    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
-    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-    WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
-    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-    WeatherContract.LocationEntry.COLUMN_COORD_LAT,
-    WeatherContract.LocationEntry.COLUMN_COORD_LONG
-  };
-
-  // These indices are tied to FORECAST_COLUMNS.  If FORECAST_COLUMNS changes, these
-  // must change.
-  static final int COL_WEATHER_ID = 0;
-  static final int COL_WEATHER_DATE = 1;
-  static final int COL_WEATHER_DESC = 2;
-  static final int COL_WEATHER_MAX_TEMP = 3;
-  static final int COL_WEATHER_MIN_TEMP = 4;
-  static final int COL_LOCATION_SETTING = 5;
-  static final int COL_WEATHER_CONDITION_ID = 6;
-  static final int COL_COORD_LAT = 7;
-  static final int COL_COORD_LONG = 8;
 
   /**
    * A callback interface that all activities containing this fragment must
@@ -200,6 +168,14 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     // specify an adapter (see also next example)
     mRecyclerView.setAdapter(mForecastAdapter);
 
+    // Frame and bind times while scrolling, for tests and 'setprop log.tag.ScrollJankMonitor'.
+    // Debug builds only, so release builds don't time every frame and bind.
+    if (BuildConfig.DEBUG) {
+      mScrollJankMonitor = new ScrollJankMonitor(getActivity());
+      mRecyclerView.addOnScrollListener(mScrollJankMonitor);
+      mForecastAdapter.setScrollJankMonitor(mScrollJankMonitor);
+    }
+
     final View parallaxView = rootView.findViewById(R.id.parallax_bar);
     if (null != parallaxView) {
       if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
@@ -273,11 +249,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     // intent can is detailed in the "Common Intents" page of Android's developer site:
     // http://developer.android.com/guide/components/intents-common.html#Maps
     if (null != mForecastAdapter) {
-      Cursor c = mForecastAdapter.getCursor();
-      if (null != c) {
-        c.moveToPosition(0);
-        String posLat = c.getString(COL_COORD_LAT);
-        String posLong = c.getString(COL_COORD_LONG);
+      ForecastRows rows = mForecastAdapter.getRows();
+      if (null != rows && rows.size() > 0) {
+        String posLat = rows.getCoordLat();
+        String posLong = rows.getCoordLong();
         Uri geoLocation = Uri.parse("geo:" + posLat + "," + posLong);
 
         Intent intent = new Intent(Intent.ACTION_VIEW);
@@ -302,33 +277,19 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
 
   @Override
-  public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
+  public Loader<ForecastRows> onCreateLoader(int i, Bundle bundle) {
     // This is called when a new Loader needs to be created.  This
     // fragment only uses one loader, so we don't care about checking the id.
-
-    // To only show current and future dates, filter the query to return weather only for
-    // dates after or including today.
-
-    // Sort order:  Ascending, by date.
-    String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
-
     String locationSetting = Utility.getPreferredLocation(getActivity());
-    Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-      locationSetting, System.currentTimeMillis());
-
-    return new CursorLoader(getActivity(),
-      weatherForLocationUri,
-      FORECAST_COLUMNS,
-      null,
-      null,
-      sortOrder);
+    return new ForecastRowLoader(getActivity(), locationSetting, mUseTodayLayout);
   }
 
   @Override
-  public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-    mForecastAdapter.swapCursor(data);
+  public void onLoadFinished(Loader<ForecastRows> loader, ForecastRows data) {
+    mForecastAdapter.swapRows(data);
+    StartupTrace.finish("first-forecast");
     updateEmptyView();
-    if (data.getCount() == 0) {
+    if (mForecastAdapter.getItemCount() == 0) {
       getActivity().supportStartPostponedEnterTransition();
     } else {
       mRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
@@ -341,16 +302,7 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
             int position = mForecastAdapter.getSelectedItemPosition();
             if (position == RecyclerView.NO_POSITION &&
               -1 != mInitialSelectedDate) {
-              Cursor data = mForecastAdapter.getCursor();
-              int count = data.getCount();
-              int dateColumn = data.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-              for (int i = 0; i < count; i++) {
-                data.moveToPosition(i);
-                if (data.getLong(dateColumn) == mInitialSelectedDate) {
-                  position = i;
-                  break;
-                }
-              }
+              position = mForecastAdapter.getRows().getPositionForDate(mInitialSelectedDate);
             }
             if (position == RecyclerView.NO_POSITION) position = 0;
             // If we don't need to restart the loader, and there's a desired position to restore
@@ -382,15 +334,28 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
   }
 
   @Override
-  public void onLoaderReset(Loader<Cursor> loader) {
-    mForecastAdapter.swapCursor(null);
+  public void onLoaderReset(Loader<ForecastRows> loader) {
+    mForecastAdapter.swapRows(null);
   }
 
   public void setUseTodayLayout(boolean useTodayLayout) {
+    boolean changed = mUseTodayLayout != useTodayLayout;
     mUseTodayLayout = useTodayLayout;
     if (mForecastAdapter != null) {
       mForecastAdapter.setUseTodayLayout(mUseTodayLayout);
     }
+    // The first row is formatted differently for the today layout, so rebuild the rows.
+    if (changed && isAdded() && getLoaderManager().getLoader(FORECAST_LOADER) != null) {
+      getLoaderManager().restartLoader(FORECAST_LOADER, null, this);
+    }
+  }
+
+  /**
+   * @return the frame and bind times recorded while the forecast list scrolls, or null in
+   * release builds
+   */
+  public ScrollJankMonitor getScrollJankMonitor() {
+    return mScrollJankMonitor;
   }
 
   public void setInitialSelectedDate(long initialSelectedDate) {
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+/**
+ * Compares two loads of forecast rows so {@link ForecastAdapter} can animate only the rows that
+ * actually changed.
+ * <p/>
+ * Rows are matched by date rather than by row id: the weather table replaces a day's row on
+ * every sync, so the id changes even when the forecast for that day didn't.
+ */
+class ForecastRowDiffCallback extends DiffUtil.Callback {
+
+  private final List<ForecastRowModel> mOldRows;
+  private final List<ForecastRowModel> mNewRows;
+
+  ForecastRowDiffCallback(List<ForecastRowModel> oldRows, List<ForecastRowModel> newRows) {
+    mOldRows = oldRows;
+    mNewRows = newRows;
+  }
+
+  @Override
+  public int getOldListSize() {
+    return mOldRows.size();
+  }
+
+  @Override
+  public int getNewListSize() {
+    return mNewRows.size();
+  }
+
+  @Override
+  public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+    return mOldRows.get(oldItemPosition).getDate() == mNewRows.get(newItemPosition).getDate();
+  }
+
+  @Override
+  public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+    return mOldRows.get(oldItemPosition).hasSameContents(mNewRows.get(newItemPosition));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+import android.support.v7.util.DiffUtil;
+
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.data.ForecastSnapshotCache;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.ForecastFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a {@link ForecastSnapshot} of the forecast for the preferred location and turns it into
+ * {@link ForecastRows} on a background thread. All of the date formatting, temperature conversion and resource lookups
+ * happen here, so {@link ForecastAdapter} never touches a cursor or a formatter while the list
+ * is scrolling.
+ * <p/>
+ * Like {@link android.support.v4.content.CursorLoader}, the loader reloads whenever the
+ * weather for its location changes. Unlike it, the cursor is closed as soon as the rows are
+ * built, and each reload is diffed against the previous one while still in the background.
+ * <p/>
+ * On its first load the loader delivers the forecast saved by the last sync in
+ * {@link ForecastSnapshotCache}, if there is one, so the list can be drawn before the database
+ * is opened. It then reloads from the database right away.
+ */
+public class ForecastRowLoader extends AsyncTaskLoader<ForecastRows> {
+
+  private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+  private final Uri mUri;
+  private final String mLocationSetting;
+  private final long mStartDate;
+  private final boolean mUseTodayLayout;
+
+  // Written on the main thread in deliverResult(), read by loadInBackground() for diffing.
+  private volatile ForecastRows mRows;
+  private boolean mObserverRegistered;
+  // Only touched by loadInBackground(), which never runs twice at once.
+  private boolean mCacheChecked;
+
+  /**
+   * @param locationSetting the location to load the forecast for
+   * @param useTodayLayout  whether the first row is shown with the larger "today" layout
+   */
+  public ForecastRowLoader(Context context, String locationSetting, boolean useTodayLayout) {
+    super(context);
+    // To only show current and future dates, filter the query to return weather only for
+    // dates after or including today.
+    mLocationSetting = locationSetting;
+    mStartDate = System.currentTimeMillis();
+    mUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+      mLocationSetting, mStartDate);
+    mUseTodayLayout = useTodayLayout;
+  }
+
+  @Override
+  public ForecastRows loadInBackground() {
+    Context context = getContext();
+
+    // The very first load shows the forecast saved by the last sync, which doesn't need the
+    // database.  The live query then follows straight away and is diffed against it.
+    if (!mCacheChecked) {
+      mCacheChecked = true;
+      StartupTrace.beginSection("ForecastSnapshotCache.load");
+      ForecastSnapshot cached;
+      try {
+        cached = ForecastSnapshotCache.load(context, mLocationSetting, mStartDate);
+      } finally {
+        StartupTrace.endSection();
+      }
+      if (cached != null && cached.size() > 0) {
+        StartupTrace.mark("forecast-cache");
+        return buildRows(context, cached, true);
+      }
+    }
+
+    StartupTrace.beginSection("ForecastSnapshot.query");
+    ForecastSnapshot snapshot;
+    try {
+      snapshot = ForecastSnapshot.query(context.getContentResolver(), mLocationSetting, mStartDate);
+    } finally {
+      StartupTrace.endSection();
+    }
+    StartupTrace.mark("forecast-query");
+    return buildRows(context, snapshot, false);
+  }
+
+  private ForecastRows buildRows(Context context, ForecastSnapshot snapshot, boolean fromCache) {
+    ForecastFormatter formatter = Utility.getForecastFormatter(context);
+    boolean isMetric = Utility.isMetric(context);
+    boolean usingLocalGraphics = Utility.usingLocalGraphics(context);
+    long now = System.currentTimeMillis();
+
+    int count = snapshot.size();
+    List<ForecastRowModel> rows = new ArrayList<>(count);
+    for (int position = 0; position < count; position++) {
+      boolean isToday = position == 0 && mUseTodayLayout;
+      int weatherId = snapshot.getWeatherId(position);
+      long date = snapshot.getDate(position);
+      String description = Utility.getStringForWeatherCondition(context, weatherId);
+      String high = formatter.formatTemperature(snapshot.getHigh(position), isMetric);
+      String low = formatter.formatTemperature(snapshot.getLow(position), isMetric);
+
+      rows.add(new ForecastRowModel(
+        snapshot.getId(position),
+        date,
+        weatherId,
+        isToday ? Utility.getArtResourceForWeatherCondition(weatherId)
+          : Utility.getIconResourceForWeatherCondition(weatherId),
+        usingLocalGraphics ? null : Utility.getArtUrlForWeatherCondition(context, weatherId),
+        formatter.getFriendlyDayString(date, now, isToday),
+        description,
+        context.getString(R.string.a11y_forecast, description),
+        high,
+        context.getString(R.string.a11y_high_temp, high),
+        low,
+        context.getString(R.string.a11y_low_temp, low)));
+    }
+
+    ForecastRows previous = mRows;
+    if (previous == null) {
+      return new ForecastRows(rows, snapshot, fromCache, null, null);
+    }
+    DiffUtil.DiffResult diff = DiffUtil.calculateDiff(
+      new ForecastRowDiffCallback(previous.asList(), rows), true);
+    return new ForecastRows(rows, snapshot, fromCache, previous, diff);
+  }
+
+  @Override
+  public void deliverResult(ForecastRows rows) {
+    if (isReset()) {
+      return;
+    }
+    mRows = rows;
+    if (isStarted()) {
+      super.deliverResult(rows);
+    }
+    if (rows != null && rows.isFromCache()) {
+      // Reconcile the cached rows with the database
+      onContentChanged();
+    }
+  }
+
+  @Override
+  protected void onStartLoading() {
+    if (!mObserverRegistered) {
+      getContext().getContentResolver().registerContentObserver(mUri, true, mObserver);
+      mObserverRegistered = true;
+    }
+    if (mRows != null) {
+      deliverResult(mRows);
+    }
+    if (takeContentChanged() || mRows == null) {
+      forceLoad();
+    }
+  }
+
+  @Override
+  protected void onStopLoading() {
+    cancelLoad();
+  }
+
+  @Override
+  protected void onReset() {
+    super.onReset();
+    onStopLoading();
+    mRows = null;
+    if (mObserverRegistered) {
+      getContext().getContentResolver().unregisterContentObserver(mObserver);
+      mObserverRegistered = false;
+    }
+  }
+}
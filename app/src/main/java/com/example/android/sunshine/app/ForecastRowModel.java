@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.text.TextUtils;
+
+/**
+ * Everything {@link ForecastAdapter} needs to show one forecast row, resolved ahead of time
+ * so binding a row is nothing more than setting text and images.
+ */
+public final class ForecastRowModel {
+
+  private final long mId;
+  private final long mDate;
+  private final int mWeatherId;
+  private final int mIconResourceId;
+  private final String mArtUrl;
+  private final String mDateText;
+  private final String mDescription;
+  private final String mDescriptionContentDescription;
+  private final String mHighText;
+  private final String mHighContentDescription;
+  private final String mLowText;
+  private final String mLowContentDescription;
+
+  /**
+   * @param id             the weather row id, stable across reloads
+   * @param date           the normalized forecast date
+   * @param weatherId      the OpenWeatherMap condition code
+   * @param iconResourceId the local image to show, also used when the art URL fails to load
+   * @param artUrl         the art pack image to show, or null when using local graphics
+   */
+  public ForecastRowModel(long id, long date, int weatherId, int iconResourceId, String artUrl,
+                          String dateText, String description,
+                          String descriptionContentDescription,
+                          String highText, String highContentDescription,
+                          String lowText, String lowContentDescription) {
+    mId = id;
+    mDate = date;
+    mWeatherId = weatherId;
+    mIconResourceId = iconResourceId;
+    mArtUrl = artUrl;
+    mDateText = dateText;
+    mDescription = description;
+    mDescriptionContentDescription = descriptionContentDescription;
+    mHighText = highText;
+    mHighContentDescription = highContentDescription;
+    mLowText = lowText;
+    mLowContentDescription = lowContentDescription;
+  }
+
+  public long getId() {
+    return mId;
+  }
+
+  public long getDate() {
+    return mDate;
+  }
+
+  public int getWeatherId() {
+    return mWeatherId;
+  }
+
+  public int getIconResourceId() {
+    return mIconResourceId;
+  }
+
+  public String getArtUrl() {
+    return mArtUrl;
+  }
+
+  public String getDateText() {
+    return mDateText;
+  }
+
+  public String getDescription() {
+    return mDescription;
+  }
+
+  public String getDescriptionContentDescription() {
+    return mDescriptionContentDescription;
+  }
+
+  public String getHighText() {
+    return mHighText;
+  }
+
+  public String getHighContentDescription() {
+    return mHighContentDescription;
+  }
+
+  public String getLowText() {
+    return mLowText;
+  }
+
+  public String getLowContentDescription() {
+    return mLowContentDescription;
+  }
+
+  /**
+   * @return true if {@code other} would be displayed exactly like this row. The row id is not
+   * compared, since it changes whenever the day is synced.
+   */
+  public boolean hasSameContents(ForecastRowModel other) {
+    return mDate == other.mDate
+      && mWeatherId == other.mWeatherId
+      && mIconResourceId == other.mIconResourceId
+      && TextUtils.equals(mArtUrl, other.mArtUrl)
+      && TextUtils.equals(mDateText, other.mDateText)
+      && TextUtils.equals(mDescription, other.mDescription)
+      && TextUtils.equals(mHighText, other.mHighText)
+      && TextUtils.equals(mLowText, other.mLowText);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.util.DiffUtil;
+
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows shown by {@link ForecastFragment}, one per day of the {@link ForecastSnapshot} they
+ * were built from.
+ * <p/>
+ * When {@link ForecastRowLoader} reloads, it also diffs the new rows against the ones it
+ * delivered last time, so the adapter can dispatch precise change notifications without doing
+ * that work on the main thread.
+ */
+public final class ForecastRows {
+
+  private final List<ForecastRowModel> mRows;
+  private final ForecastSnapshot mSnapshot;
+  private final boolean mFromCache;
+
+  // Held weakly so that a chain of reloads doesn't keep every earlier load alive.
+  private final WeakReference<ForecastRows> mDiffBase;
+  private final DiffUtil.DiffResult mDiff;
+
+  public ForecastRows(List<ForecastRowModel> rows, ForecastSnapshot snapshot) {
+    this(rows, snapshot, false, null, null);
+  }
+
+  /**
+   * @param fromCache whether {@code snapshot} was read from the
+   *                  {@link com.example.android.sunshine.app.data.ForecastSnapshotCache}
+   * @param diffBase  the rows {@code diff} was computed against
+   * @param diff      the changes that turn {@code diffBase} into these rows
+   */
+  public ForecastRows(List<ForecastRowModel> rows, ForecastSnapshot snapshot, boolean fromCache,
+                      ForecastRows diffBase, DiffUtil.DiffResult diff) {
+    mRows = Collections.unmodifiableList(rows);
+    mSnapshot = snapshot;
+    mFromCache = fromCache;
+    mDiffBase = diffBase == null ? null : new WeakReference<>(diffBase);
+    mDiff = diff;
+  }
+
+  public int size() {
+    return mRows.size();
+  }
+
+  public ForecastRowModel get(int position) {
+    return mRows.get(position);
+  }
+
+  public List<ForecastRowModel> asList() {
+    return mRows;
+  }
+
+  public ForecastSnapshot getSnapshot() {
+    return mSnapshot;
+  }
+
+  /**
+   * @return true if these rows came from the last sync's cached forecast rather than the
+   * database, and may be about to be replaced
+   */
+  public boolean isFromCache() {
+    return mFromCache;
+  }
+
+  public String getCoordLat() {
+    return mSnapshot.getCoordLat();
+  }
+
+  public String getCoordLong() {
+    return mSnapshot.getCoordLong();
+  }
+
+  /**
+   * @return the changes that turn {@code previous} into these rows, or null if they weren't
+   * computed against {@code previous}
+   */
+  public DiffUtil.DiffResult getDiffFrom(ForecastRows previous) {
+    if (previous == null || mDiffBase == null || mDiffBase.get() != previous) {
+      return null;
+    }
+    return mDiff;
+  }
+
+  /**
+   * @return the position of the row for {@code date}, or -1 if there is none
+   */
+  public int getPositionForDate(long date) {
+    return mSnapshot.getPositionForDate(date);
+  }
+}
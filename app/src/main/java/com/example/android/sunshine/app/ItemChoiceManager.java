@@ -15,34 +15,79 @@
  */
 package com.example.android.sunshine.app;
 
-import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
-import android.os.Parcelable;
 import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.view.ActionMode;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.util.SparseBooleanArray;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.widget.AbsListView;
 import android.widget.Checkable;
 
 /**
- * The ItemChoiceManager class keeps track of which positions have been selected.  Note that it
- * doesn't take advantage of new adapter features to track changes in the underlying data.
+ * The ItemChoiceManager class keeps track of which items have been selected, by position and
+ * by stable id.
+ * <p/>
+ * When the adapter's data is swapped it should call {@link #onDataSetChanged()}, which indexes
+ * the new ids once and moves every checked item to its new position (or drops it if it's gone).
+ * The choice modes match those of {@link AbsListView}, including
+ * {@link AbsListView#CHOICE_MODE_MULTIPLE_MODAL}, which requires a
+ * {@link MultiChoiceModeListener}.
  */
 public class ItemChoiceManager {
-    private final String LOG_TAG = MainActivity.class.getSimpleName();
+    private final String LOG_TAG = ItemChoiceManager.class.getSimpleName();
     private final String SELECTED_ITEMS_KEY = "SIK";
     private int mChoiceMode;
 
     private RecyclerView.Adapter mAdapter;
-    private RecyclerView.AdapterDataObserver mAdapterDataObserver = new RecyclerView.AdapterDataObserver() {
+
+    /**
+     * Receives the events of {@link AbsListView#CHOICE_MODE_MULTIPLE_MODAL}. The action mode is
+     * started when an item is long pressed and finishes once nothing is checked.
+     */
+    public interface MultiChoiceModeListener extends ActionMode.Callback {
+        void onItemCheckedStateChanged(ActionMode mode, int position, long id, boolean checked);
+    }
+
+    private AppCompatActivity mActivity;
+    private MultiChoiceModeListener mMultiChoiceModeListener;
+    private ActionMode mChoiceActionMode;
+    // Set when checked items were restored in modal mode, so the action mode can be restarted
+    // once the data is back.
+    private boolean mRestartActionMode;
+
+    private final ActionMode.Callback mModalCallback = new ActionMode.Callback() {
         @Override
-        public void onChanged() {
-            super.onChanged();
-            if (mAdapter != null && mAdapter.hasStableIds())
-                confirmCheckedPositionsById(mAdapter.getItemCount());
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            return mMultiChoiceModeListener.onCreateActionMode(mode, menu);
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return mMultiChoiceModeListener.onPrepareActionMode(mode, menu);
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            return mMultiChoiceModeListener.onActionItemClicked(mode, item);
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            mMultiChoiceModeListener.onDestroyActionMode(mode);
+            mChoiceActionMode = null;
+            // Leaving the action mode unchecks everything
+            for (int i = 0; i < mCheckStates.size(); i++) {
+                if (mCheckStates.valueAt(i)) {
+                    mAdapter.notifyItemChanged(mCheckStates.keyAt(i));
+                }
+            }
+            clearSelections();
         }
     };
 
@@ -55,13 +100,6 @@ public class ItemChoiceManager {
         mAdapter = adapter;
     }
 
-    /**
-     * How many positions in either direction we will search to try to
-     * find a checked item with a stable ID that moved position across
-     * a data set change. If the item isn't found it will be unselected.
-     */
-    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
-
     /**
      * Running state of which positions are currently checked
      */
@@ -74,11 +112,16 @@ public class ItemChoiceManager {
      */
     LongSparseArray<Integer> mCheckedIdStates = new LongSparseArray<Integer>();
 
+    /**
+     * Where each stable id currently is in the adapter.  Rebuilt once per data set change so
+     * that finding a checked item again is a single lookup.
+     */
+    private final LongSparseArray<Integer> mPositionsById = new LongSparseArray<Integer>();
+
     public void onClick(RecyclerView.ViewHolder vh) {
         if (mChoiceMode == AbsListView.CHOICE_MODE_NONE)
             return;
 
-        int checkedItemCount = mCheckStates.size();
         int position = vh.getAdapterPosition();
 
         if (position == RecyclerView.NO_POSITION) {
@@ -92,13 +135,12 @@ public class ItemChoiceManager {
             case AbsListView.CHOICE_MODE_SINGLE: {
                 boolean checked = mCheckStates.get(position, false);
                 if (!checked) {
-                    for (int i = 0; i < checkedItemCount; i++) {
-                        mAdapter.notifyItemChanged(mCheckStates.keyAt(i));
+                    int previousPosition = getSelectedItemPosition();
+                    if (previousPosition != RecyclerView.NO_POSITION) {
+                        mAdapter.notifyItemChanged(previousPosition);
                     }
-                    mCheckStates.clear();
-                    mCheckStates.put(position, true);
-                    mCheckedIdStates.clear();
-                    mCheckedIdStates.put(mAdapter.getItemId(position), position);
+                    clearSelections();
+                    setItemChecked(position, true);
                 }
                 // We directly call onBindViewHolder here because notifying that an item has
                 // changed on an item that has the focus causes it to lose focus, which makes
@@ -108,7 +150,7 @@ public class ItemChoiceManager {
             }
             case AbsListView.CHOICE_MODE_MULTIPLE: {
                 boolean checked = mCheckStates.get(position, false);
-                mCheckStates.put(position, !checked);
+                setItemChecked(position, !checked);
                 // We directly call onBindViewHolder here because notifying that an item has
                 // changed on an item that has the focus causes it to lose focus, which makes
                 // keyboard navigation a bit annoying
@@ -116,21 +158,82 @@ public class ItemChoiceManager {
                 break;
             }
             case AbsListView.CHOICE_MODE_MULTIPLE_MODAL: {
-                throw new RuntimeException("Multiple Modal not implemented in ItemChoiceManager.");
+                // Outside of the action mode a click is just a click
+                if (mChoiceActionMode == null)
+                    break;
+                boolean checked = !mCheckStates.get(position, false);
+                setItemChecked(position, checked);
+                mAdapter.onBindViewHolder(vh, position);
+                mMultiChoiceModeListener.onItemCheckedStateChanged(mChoiceActionMode, position,
+                        mAdapter.getItemId(position), checked);
+                if (getCheckedItemCount() == 0) {
+                    mChoiceActionMode.finish();
+                }
+                break;
             }
         }
     }
 
+    /**
+     * Starts the multiple choice action mode on a long press, checking the pressed item.
+     *
+     * @return true if the long press was consumed
+     */
+    public boolean onLongClick(RecyclerView.ViewHolder vh) {
+        if (mChoiceMode != AbsListView.CHOICE_MODE_MULTIPLE_MODAL
+                || mChoiceActionMode != null || mMultiChoiceModeListener == null)
+            return false;
+
+        int position = vh.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || !startActionMode())
+            return false;
+
+        setItemChecked(position, true);
+        mAdapter.onBindViewHolder(vh, position);
+        mMultiChoiceModeListener.onItemCheckedStateChanged(mChoiceActionMode, position,
+                mAdapter.getItemId(position), true);
+        return true;
+    }
+
+    private boolean startActionMode() {
+        mChoiceActionMode = mActivity.startSupportActionMode(mModalCallback);
+        return mChoiceActionMode != null;
+    }
+
+    /**
+     * @return true while the {@link AbsListView#CHOICE_MODE_MULTIPLE_MODAL} action mode is
+     * showing, when clicks check items rather than open them
+     */
+    public boolean isInActionMode() {
+        return mChoiceActionMode != null;
+    }
+
+    /**
+     * Sets the listener for {@link AbsListView#CHOICE_MODE_MULTIPLE_MODAL}.
+     *
+     * @param activity the activity that hosts the action mode
+     */
+    public void setMultiChoiceModeListener(AppCompatActivity activity,
+                                           MultiChoiceModeListener listener) {
+        mActivity = activity;
+        mMultiChoiceModeListener = listener;
+    }
+
     /**
      * Defines the choice behavior for the RecyclerView. By default, RecyclerViewChoiceMode does
      * not have any choice behavior (AbsListView.CHOICE_MODE_NONE). By setting the choiceMode to
      * AbsListView.CHOICE_MODE_SINGLE, the RecyclerView allows up to one item to  be in a
      * chosen state.
      *
-     * @param choiceMode One of AbsListView.CHOICE_MODE_NONE, AbsListView.CHOICE_MODE_SINGLE
+     * @param choiceMode One of AbsListView.CHOICE_MODE_NONE, AbsListView.CHOICE_MODE_SINGLE,
+     *                   AbsListView.CHOICE_MODE_MULTIPLE or
+     *                   AbsListView.CHOICE_MODE_MULTIPLE_MODAL
      */
     public void setChoiceMode(int choiceMode) {
         if (mChoiceMode != choiceMode) {
+            if (mChoiceActionMode != null) {
+                mChoiceActionMode.finish();
+            }
             mChoiceMode = choiceMode;
             clearSelections();
         }
@@ -138,8 +241,8 @@ public class ItemChoiceManager {
 
     /**
      * Returns the checked state of the specified position. The result is only
-     * valid if the choice mode has been set to AbsListView.CHOICE_MODE_SINGLE,
-     * but the code does not check this.
+     * valid if the choice mode has been set to something other than
+     * AbsListView.CHOICE_MODE_NONE, but the code does not check this.
      *
      * @param position The item whose checked state to return
      * @return The item's checked state
@@ -149,42 +252,74 @@ public class ItemChoiceManager {
         return mCheckStates.get(position);
     }
 
+    public int getCheckedItemCount() {
+        return mCheckedIdStates.size();
+    }
+
+    /**
+     * @return the stable ids of the checked items
+     */
+    public long[] getCheckedItemIds() {
+        long[] ids = new long[mCheckedIdStates.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = mCheckedIdStates.keyAt(i);
+        }
+        return ids;
+    }
+
+    private void setItemChecked(int position, boolean checked) {
+        long id = mAdapter.getItemId(position);
+        if (checked) {
+            mCheckStates.put(position, true);
+            mCheckedIdStates.put(id, position);
+        } else {
+            mCheckStates.delete(position);
+            mCheckedIdStates.delete(id);
+        }
+    }
+
     void clearSelections() {
         mCheckStates.clear();
         mCheckedIdStates.clear();
     }
 
-    void confirmCheckedPositionsById(int oldItemCount) {
-        // Clear out the positional check states, we'll rebuild it below from IDs.
-        mCheckStates.clear();
+    /**
+     * Moves the checked items to wherever their ids ended up after the adapter's data changed,
+     * unchecking any that are gone.  Must be called after every data set swap, once the adapter
+     * reports the new data.
+     */
+    public void onDataSetChanged() {
+        if (!mAdapter.hasStableIds()) {
+            // Without ids the best we can do is keep the positions
+            return;
+        }
 
-        for (int checkedIndex = 0; checkedIndex < mCheckedIdStates.size(); checkedIndex++) {
-            final long id = mCheckedIdStates.keyAt(checkedIndex);
-            final int lastPos = mCheckedIdStates.valueAt(checkedIndex);
-
-            final long lastPosId = mAdapter.getItemId(lastPos);
-            if (id != lastPosId) {
-                // Look around to see if the ID is nearby. If not, uncheck it.
-                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
-                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
-                boolean found = false;
-                for (int searchPos = start; searchPos < end; searchPos++) {
-                    final long searchId = mAdapter.getItemId(searchPos);
-                    if (id == searchId) {
-                        found = true;
-                        mCheckStates.put(searchPos, true);
-                        mCheckedIdStates.setValueAt(checkedIndex, searchPos);
-                        break;
-                    }
-                }
+        mPositionsById.clear();
+        int itemCount = mAdapter.getItemCount();
+        for (int position = 0; position < itemCount; position++) {
+            mPositionsById.put(mAdapter.getItemId(position), position);
+        }
 
-                if (!found) {
-                    mCheckedIdStates.delete(id);
-                    checkedIndex--;
-                }
+        // Clear out the positional check states, we'll rebuild it below from IDs.
+        mCheckStates.clear();
+        for (int checkedIndex = mCheckedIdStates.size() - 1; checkedIndex >= 0; checkedIndex--) {
+            Integer position = mPositionsById.get(mCheckedIdStates.keyAt(checkedIndex));
+            if (position == null) {
+                mCheckedIdStates.removeAt(checkedIndex);
             } else {
-                mCheckStates.put(lastPos, true);
+                mCheckStates.put(position, true);
+                mCheckedIdStates.setValueAt(checkedIndex, position);
+            }
+        }
+
+        if (mChoiceMode == AbsListView.CHOICE_MODE_MULTIPLE_MODAL) {
+            if (mRestartActionMode && mCheckedIdStates.size() > 0
+                    && mMultiChoiceModeListener != null && mChoiceActionMode == null) {
+                startActionMode();
+            } else if (mChoiceActionMode != null && mCheckedIdStates.size() == 0) {
+                mChoiceActionMode.finish();
             }
+            mRestartActionMode = false;
         }
     }
 
@@ -210,6 +345,9 @@ public class ItemChoiceManager {
                 final int value = inParcel.readInt();
                 mCheckedIdStates.put(key, value);
             }
+            inParcel.recycle();
+            mRestartActionMode = mChoiceMode == AbsListView.CHOICE_MODE_MULTIPLE_MODAL
+                    && mCheckedIdStates.size() > 0;
         }
     }
 
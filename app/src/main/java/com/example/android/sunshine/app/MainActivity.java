@@ -15,6 +15,7 @@
  */
 package com.example.android.sunshine.app;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.net.Uri;
@@ -36,6 +37,8 @@ import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
 
+import java.lang.ref.WeakReference;
+
 
 
 public class MainActivity extends AppCompatActivity implements ForecastFragment.Callback {
@@ -47,14 +50,20 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
 
   private boolean mTwoPane;
   private String mLocation;
+  private StartupTaskScheduler mStartupTasks;
+  private DetailPrefetcher mDetailPrefetcher;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    StartupTrace.start();
     super.onCreate(savedInstanceState);
     mLocation = Utility.getPreferredLocation(this);
     Uri contentUri = getIntent() != null ? getIntent().getData() : null;
 
+    StartupTrace.beginSection("setContentView");
     setContentView(R.layout.activity_main);
+    StartupTrace.endSection();
+    StartupTrace.mark("content-view");
     Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
     setSupportActionBar(toolbar);
     getSupportActionBar().setDisplayShowTitleEnabled(false);
@@ -64,6 +73,7 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
       // (res/layout-sw600dp). If this view is present, then the activity should be
       // in two-pane mode.
       mTwoPane = true;
+      mDetailPrefetcher = new DetailPrefetcher(this, mLocation);
       // In two-pane mode, show the detail view in this activity by
       // adding or replacing the detail fragment using a
       // fragment transaction.
@@ -91,22 +101,116 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
         WeatherContract.WeatherEntry.getDateFromUri(contentUri));
     }
 
-    SunshineSyncAdapter.initializeSyncAdapter(this);
+    // Only the layout and the forecast loader are needed for the first frame; everything
+    // else waits until it has been drawn.
+    scheduleStartupTasks();
+    StartupTrace.mark("create");
+  }
+
+  @Override
+  protected void onStart() {
+    super.onStart();
+    if (mDetailPrefetcher != null) {
+      mDetailPrefetcher.start();
+    }
+  }
+
+  @Override
+  protected void onStop() {
+    if (mDetailPrefetcher != null) {
+      mDetailPrefetcher.stop();
+    }
+    super.onStop();
+  }
+
+  /**
+   * @return the details of every forecast day in two-pane mode, null otherwise
+   */
+  DetailPrefetcher getDetailPrefetcher() {
+    return mDetailPrefetcher;
+  }
+
+  @Override
+  protected void onDestroy() {
+    if (mStartupTasks != null) {
+      mStartupTasks.cancel();
+    }
+    super.onDestroy();
+  }
+
+  private void scheduleStartupTasks() {
+    mStartupTasks = new StartupTaskScheduler();
+    // On a fresh install this creates the account and kicks off the sync that fills the list,
+    // so it goes first.
+    mStartupTasks.add("initializeSyncAdapter", StartupTaskScheduler.PRIORITY_HIGH,
+      new InitializeSyncAdapterTask(getApplicationContext()));
+    mStartupTasks.add("registerWithGcm", StartupTaskScheduler.PRIORITY_NORMAL,
+      new RegisterWithGcmTask(this));
+    mStartupTasks.runAfterFirstDraw(getWindow().getDecorView());
+  }
+
+  // The startup tasks run on a background thread and may outlive the activity, for instance
+  // across a rotation, so they are static and hold the application context, never a strong
+  // reference to the activity.
+
+  private static class InitializeSyncAdapterTask implements Runnable {
+    private final Context mAppContext;
+
+    InitializeSyncAdapterTask(Context appContext) {
+      mAppContext = appContext;
+    }
+
+    @Override
+    public void run() {
+      SunshineSyncAdapter.initializeSyncAdapter(mAppContext);
+    }
+  }
+
+  /**
+   * Makes sure this device has a GCM token.
+   */
+  private static class RegisterWithGcmTask implements Runnable {
+    private final Context mAppContext;
+    // Only needed to show the Play Services error dialog, if the activity is still around
+    private final WeakReference<MainActivity> mActivity;
+
+    RegisterWithGcmTask(MainActivity activity) {
+      mAppContext = activity.getApplicationContext();
+      mActivity = new WeakReference<>(activity);
+    }
+
+    @Override
+    public void run() {
+      // If Google Play Services is up to date, we'll want to register GCM. If it is not, we'll
+      // skip the registration and this device will not receive any downstream messages from
+      // our fake server. Because weather alerts are not a core feature of the app, this
+      // should not affect the behavior of the app, from a user perspective.
+      final int resultCode =
+        GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(mAppContext);
+      if (resultCode != ConnectionResult.SUCCESS) {
+        final MainActivity activity = mActivity.get();
+        if (activity != null) {
+          activity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              if (!activity.isFinishing()) {
+                activity.onPlayServicesUnavailable(resultCode);
+              }
+            }
+          });
+        }
+        return;
+      }
 
-    // If Google Play Services is up to date, we'll want to register GCM. If it is not, we'll
-    // skip the registration and this device will not receive any downstream messages from
-    // our fake server. Because weather alerts are not a core feature of the app, this should
-    // not affect the behavior of the app, from a user perspective.
-    if (checkPlayServices()) {
       // Because this is the initial creation of the app, we'll want to be certain we have
       // a token. If we do not, then we will start the IntentService that will register this
       // application with GCM.
       SharedPreferences sharedPreferences =
-        PreferenceManager.getDefaultSharedPreferences(this);
+        PreferenceManager.getDefaultSharedPreferences(mAppContext);
       boolean sentToken = sharedPreferences.getBoolean(SENT_TOKEN_TO_SERVER, false);
       if (!sentToken) {
-        Intent intent = new Intent(this, RegistrationIntentService.class);
-        startService(intent);
+        Intent intent = new Intent(mAppContext, RegistrationIntentService.class);
+        mAppContext.startService(intent);
       }
     }
   }
@@ -144,6 +248,9 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
       if (null != ff) {
         ff.onLocationChanged();
       }
+      if (null != mDetailPrefetcher) {
+        mDetailPrefetcher.setLocationSetting(location);
+      }
       DetailFragment df = (DetailFragment) getSupportFragmentManager().findFragmentByTag(DETAILFRAGMENT_TAG);
       if (null != df) {
         df.onLocationChanged(location);
@@ -179,23 +286,18 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
   }
 
   /**
-   * Check the device to make sure it has the Google Play Services APK. If
-   * it doesn't, display a dialog that allows users to download the APK from
-   * the Google Play Store or enable it in the device's system settings.
+   * Called when the device doesn't have a usable Google Play Services APK. Displays a dialog
+   * that allows users to download the APK from the Google Play Store or enable it in the
+   * device's system settings, if that can fix it.
    */
-  private boolean checkPlayServices() {
+  private void onPlayServicesUnavailable(int resultCode) {
     GoogleApiAvailability apiAvailability = GoogleApiAvailability.getInstance();
-    int resultCode = apiAvailability.isGooglePlayServicesAvailable(this);
-    if (resultCode != ConnectionResult.SUCCESS) {
-      if (apiAvailability.isUserResolvableError(resultCode)) {
-        apiAvailability.getErrorDialog(this, resultCode,
-          PLAY_SERVICES_RESOLUTION_REQUEST).show();
-      } else {
-        Log.i(LOG_TAG, "This device is not supported.");
-        finish();
-      }
-      return false;
+    if (apiAvailability.isUserResolvableError(resultCode)) {
+      apiAvailability.getErrorDialog(this, resultCode,
+        PLAY_SERVICES_RESOLUTION_REQUEST).show();
+    } else {
+      Log.i(LOG_TAG, "This device is not supported.");
+      finish();
     }
-    return true;
   }
 }
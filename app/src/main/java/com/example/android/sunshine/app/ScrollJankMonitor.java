@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+
+import com.example.android.sunshine.core.DurationStats;
+
+import java.util.Locale;
+
+/**
+ * Measures how smoothly a {@link RecyclerView} scrolls.
+ * <p/>
+ * While the list is scrolling, the time between frames is recorded through
+ * {@link Choreographer} (Jelly Bean and up), and a frame counts as janky when it took more
+ * than one and a half refresh intervals. Adapters can also report how long each bind took.
+ * Results are available from {@link #getReport()}, and are logged when a scroll ends if
+ * {@code adb shell setprop log.tag.ScrollJankMonitor DEBUG} is set.
+ * Must only be used from the main thread.
+ */
+public class ScrollJankMonitor extends RecyclerView.OnScrollListener {
+  private static final String LOG_TAG = ScrollJankMonitor.class.getSimpleName();
+
+  private static final int MAX_SAMPLES = 4096;
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
+  private final DurationStats mFrameDurations = new DurationStats(MAX_SAMPLES);
+  private final DurationStats mBindDurations = new DurationStats(MAX_SAMPLES);
+  private final long mFrameIntervalNanos;
+  private final FrameRecorder mFrameRecorder;
+
+  private boolean mScrolling;
+
+  public ScrollJankMonitor(Context context) {
+    Display display = ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE))
+      .getDefaultDisplay();
+    float refreshRate = display.getRefreshRate();
+    if (refreshRate < 1) {
+      refreshRate = 60;
+    }
+    mFrameIntervalNanos = (long) (NANOS_PER_SECOND / refreshRate);
+    mFrameRecorder = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+      ? new FrameRecorder() : null;
+  }
+
+  /**
+   * A summary of what was recorded. Durations are in milliseconds.
+   */
+  public static final class Report {
+    private final int mFrameCount;
+    private final int mJankyFrameCount;
+    private final double mFrameP50Millis;
+    private final double mFrameP90Millis;
+    private final double mFrameP99Millis;
+    private final int mBindCount;
+    private final double mBindP50Millis;
+    private final double mBindP90Millis;
+    private final double mBindMaxMillis;
+
+    Report(DurationStats frames, long jankThreshold, DurationStats binds) {
+      mFrameCount = frames.getCount();
+      mJankyFrameCount = frames.countAbove(jankThreshold);
+      mFrameP50Millis = toMillis(frames.getPercentile(50));
+      mFrameP90Millis = toMillis(frames.getPercentile(90));
+      mFrameP99Millis = toMillis(frames.getPercentile(99));
+      mBindCount = binds.getCount();
+      mBindP50Millis = toMillis(binds.getPercentile(50));
+      mBindP90Millis = toMillis(binds.getPercentile(90));
+      mBindMaxMillis = toMillis(binds.getMax());
+    }
+
+    public int getFrameCount() {
+      return mFrameCount;
+    }
+
+    public int getJankyFrameCount() {
+      return mJankyFrameCount;
+    }
+
+    public double getFrameP50Millis() {
+      return mFrameP50Millis;
+    }
+
+    public double getFrameP90Millis() {
+      return mFrameP90Millis;
+    }
+
+    public double getFrameP99Millis() {
+      return mFrameP99Millis;
+    }
+
+    public int getBindCount() {
+      return mBindCount;
+    }
+
+    public double getBindP50Millis() {
+      return mBindP50Millis;
+    }
+
+    public double getBindP90Millis() {
+      return mBindP90Millis;
+    }
+
+    public double getBindMaxMillis() {
+      return mBindMaxMillis;
+    }
+
+    private static double toMillis(long nanos) {
+      return nanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.US,
+        "frames=%d janky=%d p50=%.1fms p90=%.1fms p99=%.1fms; "
+          + "binds=%d p50=%.2fms p90=%.2fms max=%.2fms",
+        mFrameCount, mJankyFrameCount, mFrameP50Millis, mFrameP90Millis, mFrameP99Millis,
+        mBindCount, mBindP50Millis, mBindP90Millis, mBindMaxMillis);
+    }
+  }
+
+  public Report getReport() {
+    return new Report(mFrameDurations, mFrameIntervalNanos * 3 / 2, mBindDurations);
+  }
+
+  /**
+   * Forgets everything recorded so far.
+   */
+  public void reset() {
+    mFrameDurations.reset();
+    mBindDurations.reset();
+  }
+
+  /**
+   * Records how long an adapter took to bind one item.
+   */
+  public void recordBind(long durationNanos) {
+    mBindDurations.record(durationNanos);
+  }
+
+  @Override
+  public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+    boolean scrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+    if (scrolling == mScrolling) {
+      return;
+    }
+    mScrolling = scrolling;
+    if (mFrameRecorder != null) {
+      if (scrolling) {
+        mFrameRecorder.start();
+      } else {
+        mFrameRecorder.stop();
+      }
+    }
+    if (!scrolling && Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+      Log.d(LOG_TAG, getReport().toString());
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private class FrameRecorder implements Choreographer.FrameCallback {
+    private long mLastFrameTimeNanos;
+    private boolean mRunning;
+
+    void start() {
+      mRunning = true;
+      mLastFrameTimeNanos = 0;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void stop() {
+      mRunning = false;
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (!mRunning) {
+        return;
+      }
+      if (mLastFrameTimeNanos != 0) {
+        mFrameDurations.record(frameTimeNanos - mLastFrameTimeNanos);
+      }
+      mLastFrameTimeNanos = frameTimeNanos;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.os.Process;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds back the launch work that the first frame doesn't need.
+ * <p/>
+ * Tasks are queued while the activity is created and started once the first frame has been
+ * drawn. They then run one at a time on a background thread, highest priority first, and in
+ * the order they were added within a priority. Anything that has to touch the UI should post
+ * back to the main thread itself.
+ */
+public class StartupTaskScheduler {
+
+  public static final int PRIORITY_HIGH = 0;
+  public static final int PRIORITY_NORMAL = 1;
+  public static final int PRIORITY_LOW = 2;
+
+  private static final String THREAD_NAME = "StartupTasks";
+
+  private static class Task {
+    final String mName;
+    final int mPriority;
+    final Runnable mRunnable;
+
+    Task(String name, int priority, Runnable runnable) {
+      mName = name;
+      mPriority = priority;
+      mRunnable = runnable;
+    }
+  }
+
+  private final List<Task> mTasks = new ArrayList<>();
+  private volatile boolean mCancelled;
+  private boolean mStarted;
+
+  /**
+   * Queues a task to run in the background after the first frame.
+   *
+   * @param name     the name of the task, used for its trace section
+   * @param priority one of {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or
+   *                 {@link #PRIORITY_LOW}
+   */
+  public void add(String name, int priority, Runnable task) {
+    if (mStarted) {
+      throw new IllegalStateException("Tasks must be added before the scheduler starts");
+    }
+    mTasks.add(new Task(name, priority, task));
+  }
+
+  /**
+   * Starts the queued tasks once {@code view} has drawn its first frame.
+   */
+  public void runAfterFirstDraw(final View view) {
+    mStarted = true;
+    final ViewTreeObserver observer = view.getViewTreeObserver();
+    observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+      @Override
+      public boolean onPreDraw() {
+        if (observer.isAlive()) {
+          observer.removeOnPreDrawListener(this);
+        } else {
+          view.getViewTreeObserver().removeOnPreDrawListener(this);
+        }
+        // The frame is drawn right after the pre-draw pass, so anything posted now runs once
+        // it's on screen.
+        view.post(new Runnable() {
+          @Override
+          public void run() {
+            StartupTrace.mark("first-draw");
+            start();
+          }
+        });
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Drops any tasks that haven't started yet.
+   */
+  public void cancel() {
+    mCancelled = true;
+  }
+
+  private void start() {
+    if (mCancelled || mTasks.isEmpty()) {
+      return;
+    }
+    final List<Task> tasks = new ArrayList<>(mTasks);
+    mTasks.clear();
+    // Collections.sort is stable, so tasks of the same priority keep their order
+    Collections.sort(tasks, new Comparator<Task>() {
+      @Override
+      public int compare(Task lhs, Task rhs) {
+        return lhs.mPriority < rhs.mPriority ? -1 : (lhs.mPriority == rhs.mPriority ? 0 : 1);
+      }
+    });
+
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        for (Task task : tasks) {
+          if (mCancelled) {
+            return;
+          }
+          StartupTrace.beginSection(task.mName);
+          try {
+            task.mRunnable.run();
+          } finally {
+            StartupTrace.endSection();
+          }
+          StartupTrace.mark(task.mName);
+        }
+      }
+    }, THREAD_NAME).start();
+  }
+}
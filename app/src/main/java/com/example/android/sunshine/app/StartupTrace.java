@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.os.SystemClock;
+import android.support.v4.os.TraceCompat;
+import android.util.Log;
+
+/**
+ * Trace markers for the cold start of {@link MainActivity}.
+ * <p/>
+ * Each phase shows up as a section in systrace, and once enabled with
+ * {@code adb shell setprop log.tag.StartupTrace DEBUG} every mark is also logged with the time
+ * elapsed since the activity was created, up to the first forecast being shown.
+ */
+public final class StartupTrace {
+  private static final String LOG_TAG = StartupTrace.class.getSimpleName();
+
+  private static long sStartTime = -1;
+
+  private StartupTrace() {
+  }
+
+  /**
+   * Starts timing a launch. Called as early as possible in {@link MainActivity#onCreate}.
+   */
+  public static void start() {
+    sStartTime = SystemClock.elapsedRealtime();
+    mark("start");
+  }
+
+  /**
+   * Logs that a phase was reached, if a launch is being timed.
+   */
+  public static void mark(String phase) {
+    if (sStartTime >= 0 && Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+      Log.d(LOG_TAG, phase + " +" + (SystemClock.elapsedRealtime() - sStartTime) + "ms");
+    }
+  }
+
+  /**
+   * Begins a systrace section. Must be ended on the same thread.
+   */
+  public static void beginSection(String sectionName) {
+    TraceCompat.beginSection(sectionName);
+  }
+
+  public static void endSection() {
+    TraceCompat.endSection();
+  }
+
+  /**
+   * Marks the end of the launch, once the forecast is on screen. Later calls are ignored until
+   * the next {@link #start()}.
+   */
+  public static void finish(String phase) {
+    mark(phase);
+    sStartTime = -1;
+  }
+}
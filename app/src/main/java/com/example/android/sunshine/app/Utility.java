@@ -20,14 +20,15 @@ import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.preference.PreferenceManager;
-import android.text.format.Time;
 
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.core.ForecastFormatter;
+import com.example.android.sunshine.core.WeatherCondition;
 
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 
 public class Utility {
   // We'll default our latlong to 0. Yay, "Earth!"
@@ -70,10 +71,7 @@ public class Utility {
   public static String formatTemperature(Context context, double temperature) {
     // Data stored in Celsius by default.  If user prefers to see in Fahrenheit, convert
     // the values here.
-    String suffix = "\u00B0";
-    if (!isMetric(context)) {
-      temperature = (temperature * 1.8) + 32;
-    }
+    temperature = ForecastFormatter.toDisplayUnits(temperature, isMetric(context));
 
     // For presentation, assume the user doesn't care about tenths of a degree.
     return String.format(context.getString(R.string.format_temperature), temperature);
@@ -88,6 +86,22 @@ public class Utility {
   // back into date objects for comparison/processing.
   public static final String DATE_FORMAT = "yyyyMMdd";
 
+  /**
+   * Creates a formatter for dates and temperatures using the device's locale and time zone.
+   * Formatters hold on to their date formats, so use a single one when formatting many
+   * forecasts in a row.
+   *
+   * @param context Context to use for resource localization
+   * @return a formatter, which must only be used from one thread
+   */
+  public static ForecastFormatter getForecastFormatter(Context context) {
+    return new ForecastFormatter(Locale.getDefault(), TimeZone.getDefault(),
+      context.getString(R.string.today),
+      context.getString(R.string.tomorrow),
+      context.getString(R.string.format_full_friendly_date),
+      context.getString(R.string.format_temperature));
+  }
+
   /**
    * Helper method to convert the database representation of the date into something to display
    * to users.  As classy and polished a user experience as "20140102" is, we can do better.
@@ -102,30 +116,8 @@ public class Utility {
     // For tomorrow:  "Tomorrow"
     // For the next 5 days: "Wednesday" (just the day name)
     // For all days after that: "Mon Jun 8"
-
-    Time time = new Time();
-    time.setToNow();
-    long currentTime = System.currentTimeMillis();
-    int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
-    int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
-
-    // If the date we're building the String for is today's date, the format
-    // is "Today, June 24"
-    if (displayLongToday && julianDay == currentJulianDay) {
-      String today = context.getString(R.string.today);
-      int formatId = R.string.format_full_friendly_date;
-      return String.format(context.getString(
-        formatId,
-        today,
-        getFormattedMonthDay(context, dateInMillis)));
-    } else if (julianDay < currentJulianDay + 7) {
-      // If the input date is less than a week in the future, just return the day name.
-      return getDayName(context, dateInMillis);
-    } else {
-      // Otherwise, use the form "Mon Jun 3"
-      SimpleDateFormat shortenedDateFormat = new SimpleDateFormat("EEE MMM dd");
-      return shortenedDateFormat.format(dateInMillis);
-    }
+    return getForecastFormatter(context)
+      .getFriendlyDayString(dateInMillis, System.currentTimeMillis(), displayLongToday);
   }
 
   /**
@@ -137,13 +129,8 @@ public class Utility {
    * @return a user-friendly representation of the date.
    */
   public static String getFullFriendlyDayString(Context context, long dateInMillis) {
-
-    String day = getDayName(context, dateInMillis);
-    int formatId = R.string.format_full_friendly_date;
-    return String.format(context.getString(
-      formatId,
-      day,
-      getFormattedMonthDay(context, dateInMillis)));
+    return getForecastFormatter(context)
+      .getFullFriendlyDayString(dateInMillis, System.currentTimeMillis());
   }
 
   /**
@@ -155,24 +142,7 @@ public class Utility {
    * @return
    */
   public static String getDayName(Context context, long dateInMillis) {
-    // If the date is today, return the localized version of "Today" instead of the actual
-    // day name.
-
-    Time t = new Time();
-    t.setToNow();
-    int julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
-    int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
-    if (julianDay == currentJulianDay) {
-      return context.getString(R.string.today);
-    } else if (julianDay == currentJulianDay + 1) {
-      return context.getString(R.string.tomorrow);
-    } else {
-      Time time = new Time();
-      time.setToNow();
-      // Otherwise, the format is just the day of the week (e.g "Wednesday".
-      SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
-      return dayFormat.format(dateInMillis);
-    }
+    return getForecastFormatter(context).getDayName(dateInMillis, System.currentTimeMillis());
   }
 
   /**
@@ -184,12 +154,7 @@ public class Utility {
    * @return The day in the form of a string formatted "December 6"
    */
   public static String getFormattedMonthDay(Context context, long dateInMillis) {
-    Time time = new Time();
-    time.setToNow();
-    SimpleDateFormat dbDateFormat = new SimpleDateFormat(Utility.DATE_FORMAT);
-    SimpleDateFormat monthDayFormat = new SimpleDateFormat("MMMM dd");
-    String monthDayString = monthDayFormat.format(dateInMillis);
-    return monthDayString;
+    return getForecastFormatter(context).getFormattedMonthDay(dateInMillis);
   }
 
   public static String getFormattedWind(Context context, float windSpeed, float degrees) {
@@ -233,30 +198,28 @@ public class Utility {
    * @return resource id for the corresponding icon. -1 if no relation is found.
    */
   public static int getIconResourceForWeatherCondition(int weatherId) {
-    // Based on weather code data found at:
-    // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-    if (weatherId >= 200 && weatherId <= 232) {
-      return R.drawable.ic_storm;
-    } else if (weatherId >= 300 && weatherId <= 321) {
-      return R.drawable.ic_light_rain;
-    } else if (weatherId >= 500 && weatherId <= 504) {
-      return R.drawable.ic_rain;
-    } else if (weatherId == 511) {
-      return R.drawable.ic_snow;
-    } else if (weatherId >= 520 && weatherId <= 531) {
-      return R.drawable.ic_rain;
-    } else if (weatherId >= 600 && weatherId <= 622) {
-      return R.drawable.ic_snow;
-    } else if (weatherId >= 701 && weatherId <= 761) {
-      return R.drawable.ic_fog;
-    } else if (weatherId == 761 || weatherId == 781) {
-      return R.drawable.ic_storm;
-    } else if (weatherId == 800) {
-      return R.drawable.ic_clear;
-    } else if (weatherId == 801) {
-      return R.drawable.ic_light_clouds;
-    } else if (weatherId >= 802 && weatherId <= 804) {
-      return R.drawable.ic_cloudy;
+    WeatherCondition condition = WeatherCondition.forWeatherId(weatherId);
+    if (condition == null) {
+      return -1;
+    }
+    switch (condition) {
+      case STORM:
+      case TORNADO:
+        return R.drawable.ic_storm;
+      case LIGHT_RAIN:
+        return R.drawable.ic_light_rain;
+      case RAIN:
+        return R.drawable.ic_rain;
+      case SNOW:
+        return R.drawable.ic_snow;
+      case FOG:
+        return R.drawable.ic_fog;
+      case CLEAR:
+        return R.drawable.ic_clear;
+      case LIGHT_CLOUDS:
+        return R.drawable.ic_light_clouds;
+      case CLOUDS:
+        return R.drawable.ic_cloudy;
     }
     return -1;
   }
@@ -283,36 +246,18 @@ public class Utility {
    * @return url for the corresponding weather artwork. null if no relation is found.
    */
   public static String getArtUrlForWeatherCondition(Context context, int weatherId) {
+    WeatherCondition condition = WeatherCondition.forWeatherId(weatherId);
+    return condition == null ? null : condition.getArtUrl(getArtPack(context));
+  }
+
+  /**
+   * @param context Context to use for retrieving the preference
+   * @return the URL format of the selected art pack, e.g. "http://example.com/art_%s.png"
+   */
+  public static String getArtPack(Context context) {
     SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-    String formatArtUrl = prefs.getString(context.getString(R.string.pref_art_pack_key),
+    return prefs.getString(context.getString(R.string.pref_art_pack_key),
       context.getString(R.string.pref_art_pack_sunshine));
-
-    // Based on weather code data found at:
-    // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-    if (weatherId >= 200 && weatherId <= 232) {
-      return String.format(Locale.US, formatArtUrl, "storm");
-    } else if (weatherId >= 300 && weatherId <= 321) {
-      return String.format(Locale.US, formatArtUrl, "light_rain");
-    } else if (weatherId >= 500 && weatherId <= 504) {
-      return String.format(Locale.US, formatArtUrl, "rain");
-    } else if (weatherId == 511) {
-      return String.format(Locale.US, formatArtUrl, "snow");
-    } else if (weatherId >= 520 && weatherId <= 531) {
-      return String.format(Locale.US, formatArtUrl, "rain");
-    } else if (weatherId >= 600 && weatherId <= 622) {
-      return String.format(Locale.US, formatArtUrl, "snow");
-    } else if (weatherId >= 701 && weatherId <= 761) {
-      return String.format(Locale.US, formatArtUrl, "fog");
-    } else if (weatherId == 761 || weatherId == 781) {
-      return String.format(Locale.US, formatArtUrl, "storm");
-    } else if (weatherId == 800) {
-      return String.format(Locale.US, formatArtUrl, "clear");
-    } else if (weatherId == 801) {
-      return String.format(Locale.US, formatArtUrl, "light_clouds");
-    } else if (weatherId >= 802 && weatherId <= 804) {
-      return String.format(Locale.US, formatArtUrl, "clouds");
-    }
-    return null;
   }
 
   /**
@@ -323,30 +268,28 @@ public class Utility {
    * @return resource id for the corresponding icon. -1 if no relation is found.
    */
   public static int getArtResourceForWeatherCondition(int weatherId) {
-    // Based on weather code data found at:
-    // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-    if (weatherId >= 200 && weatherId <= 232) {
-      return R.drawable.art_storm;
-    } else if (weatherId >= 300 && weatherId <= 321) {
-      return R.drawable.art_light_rain;
-    } else if (weatherId >= 500 && weatherId <= 504) {
-      return R.drawable.art_rain;
-    } else if (weatherId == 511) {
-      return R.drawable.art_snow;
-    } else if (weatherId >= 520 && weatherId <= 531) {
-      return R.drawable.art_rain;
-    } else if (weatherId >= 600 && weatherId <= 622) {
-      return R.drawable.art_snow;
-    } else if (weatherId >= 701 && weatherId <= 761) {
-      return R.drawable.art_fog;
-    } else if (weatherId == 761 || weatherId == 781) {
-      return R.drawable.art_storm;
-    } else if (weatherId == 800) {
-      return R.drawable.art_clear;
-    } else if (weatherId == 801) {
-      return R.drawable.art_light_clouds;
-    } else if (weatherId >= 802 && weatherId <= 804) {
-      return R.drawable.art_clouds;
+    WeatherCondition condition = WeatherCondition.forWeatherId(weatherId);
+    if (condition == null) {
+      return -1;
+    }
+    switch (condition) {
+      case STORM:
+      case TORNADO:
+        return R.drawable.art_storm;
+      case LIGHT_RAIN:
+        return R.drawable.art_light_rain;
+      case RAIN:
+        return R.drawable.art_rain;
+      case SNOW:
+        return R.drawable.art_snow;
+      case FOG:
+        return R.drawable.art_fog;
+      case CLEAR:
+        return R.drawable.art_clear;
+      case LIGHT_CLOUDS:
+        return R.drawable.art_light_clouds;
+      case CLOUDS:
+        return R.drawable.art_clouds;
     }
     return -1;
   }
@@ -538,32 +481,8 @@ public class Utility {
    * @return A string URL to an appropriate image or null if no mapping is found
    */
   public static String getImageUrlForWeatherCondition(int weatherId) {
-    // Based on weather code data found at:
-    // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-    if (weatherId >= 200 && weatherId <= 232) {
-      return "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg";
-    } else if (weatherId >= 300 && weatherId <= 321) {
-      return "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg";
-    } else if (weatherId >= 500 && weatherId <= 504) {
-      return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
-    } else if (weatherId == 511) {
-      return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
-    } else if (weatherId >= 520 && weatherId <= 531) {
-      return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
-    } else if (weatherId >= 600 && weatherId <= 622) {
-      return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
-    } else if (weatherId >= 701 && weatherId <= 761) {
-      return "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg";
-    } else if (weatherId == 761 || weatherId == 781) {
-      return "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg";
-    } else if (weatherId == 800) {
-      return "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg";
-    } else if (weatherId == 801) {
-      return "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg";
-    } else if (weatherId >= 802 && weatherId <= 804) {
-      return "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg";
-    }
-    return null;
+    WeatherCondition condition = WeatherCondition.forWeatherId(weatherId);
+    return condition == null ? null : condition.getImageUrl();
   }
 
   /**
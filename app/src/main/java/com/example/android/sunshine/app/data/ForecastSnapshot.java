@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory copy of the forecast for one location, stored column by column.
+ * <p/>
+ * {@link #query} reads the forecast into primitive arrays and closes the cursor straight away,
+ * so callers don't keep a {@link android.database.CursorWindow} around while they display the
+ * data, and reading any day is a plain array access rather than a cursor move.
+ * Snapshots are immutable and can be shared between threads.
+ */
+public final class ForecastSnapshot {
+
+    private static final String[] FORECAST_COLUMNS = {
+            // The id needs to be fully qualified with a table name, since the content provider
+            // joins the location & weather tables in the background (both have an _id column)
+            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+    // these indices must match the projection
+    private static final int INDEX_WEATHER_ID = 0;
+    private static final int INDEX_WEATHER_DATE = 1;
+    private static final int INDEX_WEATHER_CONDITION_ID = 2;
+    private static final int INDEX_WEATHER_DESC = 3;
+    private static final int INDEX_WEATHER_MAX_TEMP = 4;
+    private static final int INDEX_WEATHER_MIN_TEMP = 5;
+    private static final int INDEX_COORD_LAT = 6;
+    private static final int INDEX_COORD_LONG = 7;
+
+    private final String mLocationSetting;
+    private final String mCoordLat;
+    private final String mCoordLong;
+    private final long[] mIds;
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    private final String[] mDescriptions;
+    private final double[] mHighs;
+    private final double[] mLows;
+
+    private ForecastSnapshot(String locationSetting, String coordLat, String coordLong,
+                             long[] ids, long[] dates, int[] weatherIds, String[] descriptions,
+                             double[] highs, double[] lows) {
+        mLocationSetting = locationSetting;
+        mCoordLat = coordLat;
+        mCoordLong = coordLong;
+        mIds = ids;
+        mDates = dates;
+        mWeatherIds = weatherIds;
+        mDescriptions = descriptions;
+        mHighs = highs;
+        mLows = lows;
+    }
+
+    /**
+     * Reads the forecast for a location, in date order, starting on the day of
+     * {@code startDate}. This hits the database, so don't call it on the main thread.
+     *
+     * @return the forecast; empty if there is none or the query failed
+     */
+    public static ForecastSnapshot query(ContentResolver resolver, String locationSetting,
+                                         long startDate) {
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                .buildWeatherLocationWithStartDate(locationSetting, startDate);
+        Cursor cursor = resolver.query(weatherForLocationUri,
+                FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return empty(locationSetting);
+        }
+
+        try {
+            int count = cursor.getCount();
+            long[] ids = new long[count];
+            long[] dates = new long[count];
+            int[] weatherIds = new int[count];
+            String[] descriptions = new String[count];
+            double[] highs = new double[count];
+            double[] lows = new double[count];
+            String coordLat = null;
+            String coordLong = null;
+
+            // Only a handful of distinct descriptions ever show up ("Clear", "Rain", ...), so
+            // share one instance of each instead of keeping a copy per day.
+            Map<String, String> descriptionPool = new HashMap<>();
+            for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+                if (i == 0) {
+                    coordLat = cursor.getString(INDEX_COORD_LAT);
+                    coordLong = cursor.getString(INDEX_COORD_LONG);
+                }
+                ids[i] = cursor.getLong(INDEX_WEATHER_ID);
+                dates[i] = cursor.getLong(INDEX_WEATHER_DATE);
+                weatherIds[i] = cursor.getInt(INDEX_WEATHER_CONDITION_ID);
+                highs[i] = cursor.getDouble(INDEX_WEATHER_MAX_TEMP);
+                lows[i] = cursor.getDouble(INDEX_WEATHER_MIN_TEMP);
+
+                descriptions[i] = pool(descriptionPool, cursor.getString(INDEX_WEATHER_DESC));
+            }
+            return new ForecastSnapshot(locationSetting, coordLat, coordLong,
+                    ids, dates, weatherIds, descriptions, highs, lows);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Writes this snapshot in the format read by {@link #readFrom}.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(mLocationSetting);
+        writeNullableUTF(out, mCoordLat);
+        writeNullableUTF(out, mCoordLong);
+        int count = size();
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(mIds[i]);
+            out.writeLong(mDates[i]);
+            out.writeShort(mWeatherIds[i]);
+            writeNullableUTF(out, mDescriptions[i]);
+            out.writeDouble(mHighs[i]);
+            out.writeDouble(mLows[i]);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo}, leaving out the days before the day of
+     * {@code startDate} the same way {@link #query} would.
+     */
+    static ForecastSnapshot readFrom(DataInput in, long startDate) throws IOException {
+        String locationSetting = in.readUTF();
+        String coordLat = readNullableUTF(in);
+        String coordLong = readNullableUTF(in);
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad day count " + count);
+        }
+
+        long firstDate = WeatherContract.normalizeDate(startDate);
+        long[] ids = new long[count];
+        long[] dates = new long[count];
+        int[] weatherIds = new int[count];
+        String[] descriptions = new String[count];
+        double[] highs = new double[count];
+        double[] lows = new double[count];
+        Map<String, String> descriptionPool = new HashMap<>();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            long date = in.readLong();
+            int weatherId = in.readShort();
+            String description = readNullableUTF(in);
+            double high = in.readDouble();
+            double low = in.readDouble();
+            if (date < firstDate) {
+                continue;
+            }
+            ids[kept] = id;
+            dates[kept] = date;
+            weatherIds[kept] = weatherId;
+            descriptions[kept] = pool(descriptionPool, description);
+            highs[kept] = high;
+            lows[kept] = low;
+            kept++;
+        }
+        if (kept < count) {
+            ids = Arrays.copyOf(ids, kept);
+            dates = Arrays.copyOf(dates, kept);
+            weatherIds = Arrays.copyOf(weatherIds, kept);
+            descriptions = Arrays.copyOf(descriptions, kept);
+            highs = Arrays.copyOf(highs, kept);
+            lows = Arrays.copyOf(lows, kept);
+        }
+        return new ForecastSnapshot(locationSetting, coordLat, coordLong,
+                ids, dates, weatherIds, descriptions, highs, lows);
+    }
+
+    private static String pool(Map<String, String> pool, String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled == null) {
+            pool.put(value, value);
+            pooled = value;
+        }
+        return pooled;
+    }
+
+    private static void writeNullableUTF(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static ForecastSnapshot empty(String locationSetting) {
+        return new ForecastSnapshot(locationSetting, null, null,
+                new long[0], new long[0], new int[0], new String[0], new double[0], new double[0]);
+    }
+
+    public int size() {
+        return mDates.length;
+    }
+
+    public String getLocationSetting() {
+        return mLocationSetting;
+    }
+
+    /**
+     * @return the latitude of the location, or null if the snapshot is empty
+     */
+    public String getCoordLat() {
+        return mCoordLat;
+    }
+
+    /**
+     * @return the longitude of the location, or null if the snapshot is empty
+     */
+    public String getCoordLong() {
+        return mCoordLong;
+    }
+
+    public long getId(int position) {
+        return mIds[position];
+    }
+
+    public long getDate(int position) {
+        return mDates[position];
+    }
+
+    public int getWeatherId(int position) {
+        return mWeatherIds[position];
+    }
+
+    /**
+     * @return the short description stored by the sync adapter, e.g. "Clear"
+     */
+    public String getDescription(int position) {
+        return mDescriptions[position];
+    }
+
+    /**
+     * @return the high temperature, in Celsius
+     */
+    public double getHigh(int position) {
+        return mHighs[position];
+    }
+
+    /**
+     * @return the low temperature, in Celsius
+     */
+    public double getLow(int position) {
+        return mLows[position];
+    }
+
+    /**
+     * @return the position of the day starting at {@code date}, or -1 if there is none
+     */
+    public int getPositionForDate(long date) {
+        for (int i = 0; i < mDates.length; i++) {
+            if (mDates[i] == date) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
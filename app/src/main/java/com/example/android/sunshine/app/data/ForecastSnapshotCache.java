@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Keeps a copy of the last synced {@link ForecastSnapshot} in a small binary file, so the
+ * forecast can be shown on launch before the database has even been opened.
+ * <p/>
+ * The file only ever holds one location. It is replaced atomically, so a reader sees either
+ * the previous snapshot or the new one.
+ */
+public final class ForecastSnapshotCache {
+    private static final String LOG_TAG = ForecastSnapshotCache.class.getSimpleName();
+
+    private static final String FILE_NAME = "forecast_snapshot.bin";
+    private static final int MAGIC = 0x53554e31; // "SUN1"
+    private static final int VERSION = 1;
+
+    private ForecastSnapshotCache() {
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Replaces the cached forecast. Does disk I/O, so don't call it on the main thread.
+     */
+    public static void save(Context context, ForecastSnapshot snapshot) {
+        AtomicFile file = getFile(context);
+        FileOutputStream fileOut = null;
+        try {
+            fileOut = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            snapshot.writeTo(out);
+            out.flush();
+            file.finishWrite(fileOut);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Couldn't save the forecast snapshot", e);
+            if (fileOut != null) {
+                file.failWrite(fileOut);
+            }
+        }
+    }
+
+    /**
+     * Reads the cached forecast for a location, starting on the day of {@code startDate}.
+     * Does disk I/O, so don't call it on the main thread.
+     *
+     * @return the cached forecast, or null if there is none for {@code locationSetting}
+     */
+    public static ForecastSnapshot load(Context context, String locationSetting, long startDate) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(getFile(context).openRead()));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            ForecastSnapshot snapshot = ForecastSnapshot.readFrom(in, startDate);
+            return locationSetting.equals(snapshot.getLocationSetting()) ? snapshot : null;
+        } catch (FileNotFoundException e) {
+            // Nothing has been synced yet
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't read the forecast snapshot", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
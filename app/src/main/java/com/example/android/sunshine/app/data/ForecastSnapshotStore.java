@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+
+import com.example.android.sunshine.app.Utility;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide holder of the forecast for the preferred location, starting today.
+ * <p/>
+ * The widgets, Muzei, the notification and the wearable all show today's weather and are
+ * all refreshed after the same sync. Rather than each of them querying the provider, they
+ * read the snapshot kept here, which is queried once and then reused until the weather table
+ * changes, the preferred location changes or the day rolls over.
+ * <p/>
+ * {@link WeatherProvider} calls {@link #invalidate()} on every write, before the write returns.
+ * A content observer would hear of the change only later, after a writer that reads straight
+ * away had already queried, and would then make every reader query a second time.
+ */
+public final class ForecastSnapshotStore {
+
+    private static ForecastSnapshotStore sInstance;
+
+    private final Context mContext;
+    // Bumped whenever the weather table changes; a snapshot is only reused if nothing
+    // changed since its query started.
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private ForecastSnapshot mSnapshot;
+    private int mSnapshotGeneration;
+    private long mSnapshotDay;
+
+    private ForecastSnapshotStore(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized ForecastSnapshotStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ForecastSnapshotStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the forecast for the preferred location, starting today. Queries the provider
+     * if the weather changed since the last call, so don't call it on the main thread.
+     * Concurrent callers wait for a single query rather than running their own.
+     *
+     * @return the forecast; empty if there is none
+     */
+    public synchronized ForecastSnapshot getSnapshot() {
+        String location = Utility.getPreferredLocation(mContext);
+        long now = System.currentTimeMillis();
+        long today = WeatherContract.normalizeDate(now);
+        if (mSnapshot == null
+                || mSnapshotGeneration != mGeneration.get()
+                || mSnapshotDay != today
+                || !location.equals(mSnapshot.getLocationSetting())) {
+            int generation = mGeneration.get();
+            mSnapshot = ForecastSnapshot.query(mContext.getContentResolver(), location, now);
+            mSnapshotGeneration = generation;
+            mSnapshotDay = today;
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * Drops the current snapshot, so the next {@link #getSnapshot()} queries again.
+     */
+    public void invalidate() {
+        mGeneration.incrementAndGet();
+    }
+}
@@ -16,24 +16,21 @@
 
 package com.example.android.sunshine.app.gcm;
 
-import android.app.NotificationManager;
-import android.app.PendingIntent;
-import android.content.Context;
-import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.support.v4.app.NotificationCompat;
 import android.util.Log;
 import android.widget.Toast;
 
-import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.core.ForecastDelta;
+import com.example.android.sunshine.core.ForecastDeltaParser;
 import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.TimeZone;
+
 public class MyGcmListenerService extends GcmListenerService {
 
     private static final String TAG = "MyGcmListenerService";
@@ -41,8 +38,8 @@ public class MyGcmListenerService extends GcmListenerService {
     private static final String EXTRA_DATA = "data";
     private static final String EXTRA_WEATHER = "weather";
     private static final String EXTRA_LOCATION = "location";
-
-    public static final int NOTIFICATION_ID = 1;
+    // A compact forecast delta, see ForecastDeltaParser for the format
+    private static final String EXTRA_FORECAST = "forecast";
 
     /**
      * Called when message is received.
@@ -62,17 +59,20 @@ public class MyGcmListenerService extends GcmListenerService {
             }
             // Not a bad idea to check that the message is coming from your server.
             if ((senderId).equals(from)) {
-                // Process message and then post a notification of the received message.
-                try {
-                    JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
-                    String weather = jsonObject.getString(EXTRA_WEATHER);
-                    String location = jsonObject.getString(EXTRA_LOCATION);
-                    String alert =
-                            String.format(getString(R.string.gcm_weather_alert), weather, location);
-                    sendNotification(alert);
-                } catch (JSONException e) {
-                    // JSON parsing failed, so we just let this message go, since GCM is not one
-                    // of our critical features.
+                if (data.containsKey(EXTRA_FORECAST)) {
+                    applyForecastDelta(data.getString(EXTRA_FORECAST));
+                }
+                if (data.containsKey(EXTRA_DATA)) {
+                    // Process message and then post a notification of the received message.
+                    try {
+                        JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
+                        String weather = jsonObject.getString(EXTRA_WEATHER);
+                        String location = jsonObject.getString(EXTRA_LOCATION);
+                        WeatherAlertAggregator.getInstance(this).addAlert(location, weather);
+                    } catch (JSONException e) {
+                        // JSON parsing failed, so we just let this message go, since GCM is
+                        // not one of our critical features.
+                    }
                 }
             }
             Log.i(TAG, "Received: " + data.toString());
@@ -80,31 +80,20 @@ public class MyGcmListenerService extends GcmListenerService {
     }
 
     /**
-     *  Put the message into a notification and post it.
-     *  This is just one simple example of what you might choose to do with a GCM message.
-     *
-     * @param message The alert message to be posted.
+     * Stores the days pushed in a forecast delta, so the app is up to date without waiting
+     * for its next sync. Falls back to syncing straight away if the delta can't be used.
      */
-    private void sendNotification(String message) {
-        NotificationManager mNotificationManager =
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        PendingIntent contentIntent =
-                PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class), 0);
-
-        // Notifications using both a large and a small icon (which yours should!) need the large
-        // icon as a bitmap. So we need to create that here from the resource ID, and pass the
-        // object along in our notification builder. Generally, you want to use the app icon as the
-        // small icon, so that users understand what app is triggering this notification.
-        Bitmap largeIcon = BitmapFactory.decodeResource(this.getResources(), R.drawable.art_storm);
-        NotificationCompat.Builder mBuilder =
-                new NotificationCompat.Builder(this)
-                        .setSmallIcon(R.drawable.art_clear)
-                        .setLargeIcon(largeIcon)
-                        .setContentTitle("Weather Alert!")
-                        .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
-                        .setContentText(message)
-                        .setPriority(NotificationCompat.PRIORITY_HIGH);
-        mBuilder.setContentIntent(contentIntent);
-        mNotificationManager.notify(NOTIFICATION_ID, mBuilder.build());
+    private void applyForecastDelta(String deltaJson) {
+        boolean applied;
+        try {
+            ForecastDelta delta = ForecastDeltaParser.parse(deltaJson, TimeZone.getDefault());
+            applied = SunshineSyncAdapter.applyForecastDelta(this, delta);
+        } catch (JSONException e) {
+            Log.w(TAG, "Couldn't read forecast delta", e);
+            applied = false;
+        }
+        if (!applied) {
+            SunshineSyncAdapter.syncImmediately(this);
+        }
     }
-}
\ No newline at end of file
+}
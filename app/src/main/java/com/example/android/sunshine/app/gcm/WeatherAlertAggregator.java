@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.util.Log;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns severe weather alerts into a single notification, however many of them arrive.
+ * <p/>
+ * An alert for a location and weather already shown within the dedupe window is dropped.
+ * The first alert after a quiet period is posted straight away; alerts that follow it within
+ * the batch window are held back and posted together, so a burst of messages updates the
+ * notification once instead of once per message. When several alerts are active they are
+ * listed in one inbox style notification.
+ * <p/>
+ * The active alerts and the counters are kept in the shared preferences and the held back
+ * batch is posted by {@link WeatherAlertFlushService} from an alarm, because the process that
+ * received the messages may be gone by the time the batch window ends.
+ */
+public class WeatherAlertAggregator {
+
+    public static final int NOTIFICATION_ID = 1;
+
+    private static final String LOG_TAG = WeatherAlertAggregator.class.getSimpleName();
+
+    private static final long BATCH_WINDOW_MILLIS = 10 * 1000;
+    private static final long DEDUPE_WINDOW_MILLIS = 60 * 60 * 1000;
+
+    private static final String PREF_ALERTS = "weather_alerts";
+    private static final String PREF_LAST_POST_TIME = "weather_alerts_last_post_time";
+    private static final String PREF_POSTED_COUNT = "weather_alerts_posted_count";
+    private static final String PREF_SUPPRESSED_COUNT = "weather_alerts_suppressed_count";
+    private static final String ALERT_KEY = "key";
+    private static final String ALERT_MESSAGE = "message";
+    private static final String ALERT_TIME = "time";
+    private static final String ALERT_HELD = "held";
+
+    private static WeatherAlertAggregator sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPrefs;
+
+    // Alert key ("location|weather") to its message and when it arrived, oldest first
+    private final Map<String, Alert> mActiveAlerts = new LinkedHashMap<>();
+    private long mLastPostTime;
+    private Bitmap mLargeIcon;
+    private int mPostedCount;
+    private int mSuppressedCount;
+
+    private static class Alert {
+        final String message;
+        final long time;
+        // Whether the alert arrived within the batch window and hasn't been posted yet
+        boolean held;
+
+        Alert(String message, long time, boolean held) {
+            this.message = message;
+            this.time = time;
+            this.held = held;
+        }
+    }
+
+    private WeatherAlertAggregator(Context context) {
+        mContext = context;
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        load();
+    }
+
+    public static synchronized WeatherAlertAggregator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WeatherAlertAggregator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Adds an alert to the notification. Safe to call from any thread.
+     *
+     * @param location the location the alert is for
+     * @param weather  the kind of weather, e.g. "Hurricane"
+     */
+    public synchronized void addAlert(String location, String weather) {
+        long now = System.currentTimeMillis();
+        expireAlerts(now);
+
+        String key = location + "|" + weather;
+        if (mActiveAlerts.containsKey(key)) {
+            mSuppressedCount++;
+            save();
+            return;
+        }
+        String message = String.format(mContext.getString(R.string.gcm_weather_alert),
+                weather, location);
+
+        // Also covers a batch whose alarm never fired, e.g. across a reboot
+        long sinceLastPost = now - mLastPostTime;
+        if (sinceLastPost < 0 || sinceLastPost >= BATCH_WINDOW_MILLIS) {
+            mActiveAlerts.put(key, new Alert(message, now, false));
+            post(now);
+        } else {
+            mActiveAlerts.put(key, new Alert(message, now, true));
+            scheduleFlush(BATCH_WINDOW_MILLIS - sinceLastPost);
+        }
+        save();
+    }
+
+    /**
+     * @return how many alerts were dropped as duplicates of an active alert
+     */
+    public synchronized int getSuppressedCount() {
+        return mSuppressedCount;
+    }
+
+    /**
+     * @return how many times the notification was posted or updated
+     */
+    public synchronized int getPostedCount() {
+        return mPostedCount;
+    }
+
+    /**
+     * Posts the alerts held back since the last post, if any.
+     */
+    synchronized void flush() {
+        long now = System.currentTimeMillis();
+        expireAlerts(now);
+        if (!hasHeldAlerts()) {
+            return;
+        }
+        post(now);
+        save();
+    }
+
+    private boolean hasHeldAlerts() {
+        for (Alert alert : mActiveAlerts.values()) {
+            if (alert.held) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        // Replaces any flush already scheduled, which was due at the same time anyway
+        PendingIntent flushIntent = PendingIntent.getService(mContext, 0,
+                new Intent(mContext, WeatherAlertFlushService.class),
+                PendingIntent.FLAG_UPDATE_CURRENT);
+        AlarmManager alarmManager =
+                (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+        long triggerAt = SystemClock.elapsedRealtime() + delayMillis;
+        // Since KitKat set() may be deferred by minutes, far beyond the batch window
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, flushIntent);
+        } else {
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, flushIntent);
+        }
+    }
+
+    private void expireAlerts(long now) {
+        Iterator<Alert> alerts = mActiveAlerts.values().iterator();
+        while (alerts.hasNext()) {
+            long age = now - alerts.next().time;
+            if (age < 0 || age >= DEDUPE_WINDOW_MILLIS) {
+                alerts.remove();
+            }
+        }
+    }
+
+    private void load() {
+        mLastPostTime = mPrefs.getLong(PREF_LAST_POST_TIME, 0);
+        mPostedCount = mPrefs.getInt(PREF_POSTED_COUNT, 0);
+        mSuppressedCount = mPrefs.getInt(PREF_SUPPRESSED_COUNT, 0);
+        String json = mPrefs.getString(PREF_ALERTS, null);
+        if (json == null) {
+            return;
+        }
+        try {
+            JSONArray alerts = new JSONArray(json);
+            for (int i = 0; i < alerts.length(); i++) {
+                JSONObject alert = alerts.getJSONObject(i);
+                mActiveAlerts.put(alert.getString(ALERT_KEY), new Alert(
+                        alert.getString(ALERT_MESSAGE), alert.getLong(ALERT_TIME),
+                        alert.optBoolean(ALERT_HELD)));
+            }
+        } catch (JSONException e) {
+            Log.w(LOG_TAG, "Couldn't read the saved alerts", e);
+            mActiveAlerts.clear();
+        }
+    }
+
+    private void save() {
+        JSONArray alerts = new JSONArray();
+        try {
+            for (Map.Entry<String, Alert> entry : mActiveAlerts.entrySet()) {
+                alerts.put(new JSONObject()
+                        .put(ALERT_KEY, entry.getKey())
+                        .put(ALERT_MESSAGE, entry.getValue().message)
+                        .put(ALERT_TIME, entry.getValue().time)
+                        .put(ALERT_HELD, entry.getValue().held));
+            }
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, "Couldn't save the alerts", e);
+            return;
+        }
+        mPrefs.edit()
+                .putString(PREF_ALERTS, alerts.toString())
+                .putLong(PREF_LAST_POST_TIME, mLastPostTime)
+                .putInt(PREF_POSTED_COUNT, mPostedCount)
+                .putInt(PREF_SUPPRESSED_COUNT, mSuppressedCount)
+                .apply();
+    }
+
+    private void post(long now) {
+        mLastPostTime = now;
+        if (mActiveAlerts.isEmpty()) {
+            return;
+        }
+        List<String> messages = new ArrayList<>(mActiveAlerts.size());
+        for (Alert alert : mActiveAlerts.values()) {
+            messages.add(alert.message);
+            alert.held = false;
+        }
+        // The newest alert goes on top
+        String latest = messages.get(messages.size() - 1);
+
+        NotificationManager notificationManager =
+                (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        PendingIntent contentIntent = PendingIntent.getActivity(mContext, 0,
+                new Intent(mContext, MainActivity.class), 0);
+
+        // Notifications using both a large and a small icon (which yours should!) need the
+        // large icon as a bitmap. It's the same for every alert, so decode it only once.
+        if (mLargeIcon == null) {
+            mLargeIcon = BitmapFactory.decodeResource(mContext.getResources(),
+                    R.drawable.art_storm);
+        }
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext)
+                .setSmallIcon(R.drawable.art_clear)
+                .setLargeIcon(mLargeIcon)
+                .setContentText(latest)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(contentIntent);
+        if (messages.size() == 1) {
+            builder.setContentTitle(mContext.getString(R.string.gcm_weather_alert_title))
+                    .setStyle(new NotificationCompat.BigTextStyle().bigText(latest));
+        } else {
+            String title = mContext.getResources().getQuantityString(
+                    R.plurals.gcm_weather_alerts_title, messages.size(), messages.size());
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                    .setBigContentTitle(title);
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                style.addLine(messages.get(i));
+            }
+            builder.setContentTitle(title)
+                    .setNumber(messages.size())
+                    .setStyle(style);
+        }
+        notificationManager.notify(NOTIFICATION_ID, builder.build());
+        mPostedCount++;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.app.IntentService;
+import android.content.Intent;
+
+/**
+ * Posts the alerts {@link WeatherAlertAggregator} held back for its batch window. Started by
+ * an alarm, so the batch is posted even if the process that received the alerts has died.
+ */
+public class WeatherAlertFlushService extends IntentService {
+    private static final String TAG = "WeatherAlertFlush";
+
+    public WeatherAlertFlushService() {
+        super(TAG);
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        WeatherAlertAggregator.getInstance(this).flush();
+    }
+}
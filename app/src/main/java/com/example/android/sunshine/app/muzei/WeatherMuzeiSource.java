@@ -16,27 +16,26 @@
 package com.example.android.sunshine.app.muzei;
 
 import android.content.Intent;
-import android.database.Cursor;
+import android.content.SharedPreferences;
 import android.net.Uri;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.data.ForecastSnapshotStore;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.core.ForecastDates;
 import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
+import java.util.TimeZone;
+
 /**
  * Muzei source that changes your background based on the current weather conditions
  */
 public class WeatherMuzeiSource extends MuzeiArtSource {
-    private static final String[] FORECAST_COLUMNS = new String[]{
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_SHORT_DESC = 1;
+    // What was last published, so unchanged weather doesn't publish the same artwork again
+    private static final String PREF_PUBLISHED_ARTWORK = "published_artwork";
 
     public WeatherMuzeiSource() {
         super("WeatherMuzeiSource");
@@ -54,26 +53,52 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
 
     @Override
     protected void onUpdate(int reason) {
-        String location = Utility.getPreferredLocation(this);
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                location, System.currentTimeMillis());
-        Cursor cursor = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
-                null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            String desc = cursor.getString(INDEX_SHORT_DESC);
+        ForecastSnapshot data = ForecastSnapshotStore.getInstance(this).getSnapshot();
+        if (data.size() > 0) {
+            int weatherId = data.getWeatherId(0);
+            String desc = data.getDescription(0);
+            String location = data.getLocationSetting();
 
             String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
             // Only publish a new wallpaper if we have a valid image
             if (imageUrl != null) {
-                publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
-                        .title(desc)
-                        .byline(location)
-                        .viewIntent(new Intent(this, MainActivity.class))
-                        .build());
+                // Muzei downloads and blurs the image again for every artwork it's given, so
+                // only publish when what's shown would actually change
+                String artworkKey = weatherId + "|" + location + "|" + imageUrl + "|" + desc;
+                SharedPreferences prefs = getSharedPreferences();
+                boolean unchanged = reason != UPDATE_REASON_INITIAL
+                        && getCurrentArtwork() != null
+                        && artworkKey.equals(prefs.getString(PREF_PUBLISHED_ARTWORK, null));
+                if (!unchanged) {
+                    publishArtwork(new Artwork.Builder()
+                            .imageUri(Uri.parse(imageUrl))
+                            .title(desc)
+                            .byline(location)
+                            .viewIntent(new Intent(this, MainActivity.class))
+                            .build());
+                    prefs.edit().putString(PREF_PUBLISHED_ARTWORK, artworkKey).apply();
+                }
             }
         }
-        cursor.close();
+        scheduleRollover(data);
+    }
+
+    /**
+     * Schedules an update for midnight when tomorrow's forecast is already known, so the
+     * wallpaper switches at the rollover from the stored forecast instead of waiting for the
+     * next sync.
+     */
+    private void scheduleRollover(ForecastSnapshot data) {
+        // The forecast days start at local midnight, and the first stored day isn't
+        // necessarily today
+        long now = System.currentTimeMillis();
+        TimeZone timeZone = TimeZone.getDefault();
+        long tomorrow = ForecastDates.getStartOfJulianDay(
+                ForecastDates.getJulianDay(now, timeZone) + 1, timeZone);
+        if (data.getPositionForDate(tomorrow) == -1) {
+            unscheduleUpdate();
+            return;
+        }
+        scheduleUpdate(tomorrow);
     }
 }
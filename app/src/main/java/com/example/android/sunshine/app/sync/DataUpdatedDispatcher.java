@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+
+import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+
+/**
+ * Tells the widgets and Muzei that the weather changed, coalescing bursts of changes.
+ * <p/>
+ * Each {@link SunshineSyncAdapter#ACTION_DATA_UPDATED} makes the detail widget reload its
+ * list and Muzei re-read today's weather, so a sync followed by a settings change, or several
+ * syncs in a row, used to refresh every surface several times. Requests made here are held
+ * until nothing new has come in for the quiet window, then sent once. A steady stream of
+ * requests is still sent at least once per max latency, so surfaces never fall far behind.
+ * <p/>
+ * The held requests are sent by {@link DataUpdatedService} from an alarm, so they still go
+ * out when the sync that made them ends and its process is gone.
+ */
+public class DataUpdatedDispatcher {
+
+  public static final long DEFAULT_QUIET_WINDOW_MILLIS = 500;
+  public static final long DEFAULT_MAX_LATENCY_MILLIS = 2000;
+
+  private static DataUpdatedDispatcher sInstance;
+
+  private final Context mContext;
+
+  private long mQuietWindowMillis = DEFAULT_QUIET_WINDOW_MILLIS;
+  private long mMaxLatencyMillis = DEFAULT_MAX_LATENCY_MILLIS;
+  // When the oldest request still waiting was made, 0 if nothing is waiting
+  private long mFirstRequestTime;
+
+  private DataUpdatedDispatcher(Context context) {
+    mContext = context;
+  }
+
+  public static synchronized DataUpdatedDispatcher getInstance(Context context) {
+    if (sInstance == null) {
+      sInstance = new DataUpdatedDispatcher(context.getApplicationContext());
+    }
+    return sInstance;
+  }
+
+  /**
+   * @param quietWindowMillis how long to wait for further requests before sending
+   * @param maxLatencyMillis  the longest a request may be held back, however many follow it
+   */
+  public synchronized void setWindows(long quietWindowMillis, long maxLatencyMillis) {
+    if (quietWindowMillis < 0 || maxLatencyMillis < quietWindowMillis) {
+      throw new IllegalArgumentException("Bad windows " + quietWindowMillis + ", "
+        + maxLatencyMillis);
+    }
+    mQuietWindowMillis = quietWindowMillis;
+    mMaxLatencyMillis = maxLatencyMillis;
+  }
+
+  /**
+   * Asks for the widgets and Muzei to be refreshed. Safe to call from any thread.
+   */
+  public synchronized void requestDispatch() {
+    long now = SystemClock.elapsedRealtime();
+    if (mFirstRequestTime == 0) {
+      mFirstRequestTime = now;
+    }
+    long deadline = Math.min(now + mQuietWindowMillis, mFirstRequestTime + mMaxLatencyMillis);
+
+    // Replaces the alarm of any request still waiting
+    PendingIntent dispatchIntent = PendingIntent.getService(mContext, 0,
+      new Intent(mContext, DataUpdatedService.class), PendingIntent.FLAG_UPDATE_CURRENT);
+    AlarmManager alarmManager = (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+    // Since KitKat set() may be deferred by minutes, far beyond the max latency
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      alarmManager.setExact(AlarmManager.ELAPSED_REALTIME, deadline, dispatchIntent);
+    } else {
+      alarmManager.set(AlarmManager.ELAPSED_REALTIME, deadline, dispatchIntent);
+    }
+  }
+
+  /**
+   * Sends the refresh for the requests held so far. Called by {@link DataUpdatedService}.
+   */
+  void dispatch() {
+    synchronized (this) {
+      mFirstRequestTime = 0;
+    }
+    // Setting the package ensures that only components in our app will receive the broadcast
+    Intent dataUpdatedIntent = new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+      .setPackage(mContext.getPackageName());
+    mContext.sendBroadcast(dataUpdatedIntent);
+
+    // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
+    // Muzei background on lower API level devices
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      mContext.startService(new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+        .setClass(mContext, WeatherMuzeiSource.class));
+    }
+  }
+}
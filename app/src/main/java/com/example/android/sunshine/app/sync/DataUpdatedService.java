@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.app.IntentService;
+import android.content.Intent;
+
+/**
+ * Sends the refresh {@link DataUpdatedDispatcher} held back, once its alarm goes off.
+ */
+public class DataUpdatedService extends IntentService {
+  private static final String LOG_TAG = DataUpdatedService.class.getSimpleName();
+
+  public DataUpdatedService() {
+    super(LOG_TAG);
+  }
+
+  @Override
+  protected void onHandleIntent(Intent intent) {
+    DataUpdatedDispatcher.getInstance(this).dispatch();
+  }
+}
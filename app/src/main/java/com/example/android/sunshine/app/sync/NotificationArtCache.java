@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.support.v4.util.AtomicFile;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.core.WeatherCondition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Large icons for the weather notification, already scaled to the platform's notification
+ * icon size, kept in memory and in the cache directory.
+ * <p/>
+ * Icons are keyed by their art URL, which is made from both the art pack and the condition.
+ * {@link #warmAsync()} fetches the icon for every condition of the selected pack in the
+ * background; it runs whenever the art pack changes and whenever an icon is found missing.
+ * {@link #getLargeIcon} never touches the network: until the pack's art is on disk it
+ * returns the bundled art instead.
+ */
+public class NotificationArtCache {
+  private static final String LOG_TAG = NotificationArtCache.class.getSimpleName();
+
+  private static final String DIRECTORY_NAME = "notification_art";
+  // Enough for every condition of one pack, plus the bundled fallbacks
+  private static final int MAX_MEMORY_ENTRIES = 2 * WeatherCondition.values().length;
+
+  private static NotificationArtCache sInstance;
+
+  private final Context mContext;
+  private final File mDirectory;
+  private final int mIconWidth;
+  private final int mIconHeight;
+  private final LruCache<String, Bitmap> mMemoryCache = new LruCache<>(MAX_MEMORY_ENTRIES);
+  // One warm at a time; a second request just finds everything already on disk
+  private final Executor mWarmExecutor = Executors.newSingleThreadExecutor();
+  private final Runnable mWarm = new Runnable() {
+    @Override
+    public void run() {
+      warm();
+    }
+  };
+
+  private NotificationArtCache(Context context) {
+    mContext = context;
+    mDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    Resources resources = context.getResources();
+
+    // On Honeycomb and higher devices, we can retrieve the size of the large icon
+    // Prior to that, we use a fixed size
+    @SuppressLint("InlinedApi")
+    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+      ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+      : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    @SuppressLint("InlinedApi")
+    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+      ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+      : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    mIconWidth = largeIconWidth;
+    mIconHeight = largeIconHeight;
+  }
+
+  public static synchronized NotificationArtCache getInstance(Context context) {
+    if (sInstance == null) {
+      sInstance = new NotificationArtCache(context.getApplicationContext());
+    }
+    return sInstance;
+  }
+
+  /**
+   * Returns the large icon for a condition in the selected art pack, or the bundled art if the
+   * pack's icon hasn't been fetched yet. Reads from disk at most, so don't call it on the main
+   * thread.
+   *
+   * @return the icon, or null if the weather id has no art
+   */
+  public Bitmap getLargeIcon(int weatherId) {
+    String artUrl = Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+    if (artUrl == null) {
+      return null;
+    }
+    Bitmap icon = mMemoryCache.get(artUrl);
+    if (icon != null) {
+      return icon;
+    }
+    File file = getFile(artUrl);
+    if (file.exists()) {
+      icon = BitmapFactory.decodeFile(file.getPath());
+      if (icon != null) {
+        mMemoryCache.put(artUrl, icon);
+        return icon;
+      }
+    }
+
+    // Fetch it for next time, and make do with what ships with the app for now
+    warmAsync();
+    int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+    String resourceKey = "res:" + artResourceId;
+    icon = mMemoryCache.get(resourceKey);
+    if (icon == null) {
+      icon = decodeScaledResource(artResourceId);
+      if (icon != null) {
+        mMemoryCache.put(resourceKey, icon);
+      }
+    }
+    return icon;
+  }
+
+  /**
+   * Returns the PNG encoded icon for a condition in the selected art pack, exactly as it is
+   * stored on disk, so it can be sent on without decoding and compressing it again.
+   *
+   * @return the icon, or null if it hasn't been fetched yet
+   */
+  public byte[] getArtBytes(int weatherId) {
+    String artUrl = Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+    if (artUrl == null) {
+      return null;
+    }
+    File file = getFile(artUrl);
+    if (!file.exists()) {
+      warmAsync();
+      return null;
+    }
+    try {
+      return new AtomicFile(file).readFully();
+    } catch (IOException e) {
+      Log.e(LOG_TAG, "Couldn't read " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Fetches any missing icons of the selected art pack, and removes those of other packs,
+   * on a background thread.
+   */
+  public void warmAsync() {
+    mWarmExecutor.execute(mWarm);
+  }
+
+  private void warm() {
+    if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+      Log.w(LOG_TAG, "Couldn't create " + mDirectory);
+      return;
+    }
+    String artPack = Utility.getArtPack(mContext);
+    Set<String> packFiles = new HashSet<>();
+    for (WeatherCondition condition : WeatherCondition.values()) {
+      String artUrl = condition.getArtUrl(artPack);
+      File file = getFile(artUrl);
+      packFiles.add(file.getName());
+      if (file.exists()) {
+        continue;
+      }
+      try {
+        Bitmap icon = Glide.with(mContext)
+          .load(artUrl)
+          .asBitmap()
+          .fitCenter()
+          .into(mIconWidth, mIconHeight).get();
+        write(file, icon);
+        mMemoryCache.put(artUrl, icon);
+      } catch (InterruptedException | ExecutionException e) {
+        Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
+      }
+    }
+
+    // Only one pack is in use at a time, so the others' icons can go
+    File[] files = mDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (!packFiles.contains(file.getName())) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  private void write(File file, Bitmap icon) {
+    AtomicFile atomicFile = new AtomicFile(file);
+    FileOutputStream out = null;
+    try {
+      out = atomicFile.startWrite();
+      icon.compress(Bitmap.CompressFormat.PNG, 100, out);
+      atomicFile.finishWrite(out);
+    } catch (IOException e) {
+      Log.e(LOG_TAG, "Couldn't save " + file, e);
+      if (out != null) {
+        atomicFile.failWrite(out);
+      }
+    }
+  }
+
+  private Bitmap decodeScaledResource(int resourceId) {
+    Resources resources = mContext.getResources();
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeResource(resources, resourceId, options);
+
+    // Decode at the smallest power of two that still covers the icon, then scale the rest
+    int sampleSize = 1;
+    while (options.outWidth / (sampleSize * 2) >= mIconWidth
+      && options.outHeight / (sampleSize * 2) >= mIconHeight) {
+      sampleSize *= 2;
+    }
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    Bitmap decoded = BitmapFactory.decodeResource(resources, resourceId, options);
+    if (decoded == null) {
+      return null;
+    }
+    float scale = Math.min((float) mIconWidth / decoded.getWidth(),
+      (float) mIconHeight / decoded.getHeight());
+    if (scale >= 1) {
+      return decoded;
+    }
+    return Bitmap.createScaledBitmap(decoded, Math.round(decoded.getWidth() * scale),
+      Math.round(decoded.getHeight() * scale), true);
+  }
+
+  private File getFile(String artUrl) {
+    try {
+      return new File(mDirectory, hash(artUrl.getBytes("UTF-8")) + ".png");
+    } catch (UnsupportedEncodingException e) {
+      // UTF-8 is guaranteed to exist on Android
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the SHA-1 of {@code value}, as lowercase hex
+   */
+  static String hash(byte[] value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(value);
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(String.format(Locale.US, "%02x", b & 0xff));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-1 is guaranteed to exist on Android
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -2,7 +2,6 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
@@ -18,7 +17,6 @@ import android.content.SyncResult;
 import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -26,32 +24,28 @@ import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.TaskStackBuilder;
-import android.text.format.Time;
 import android.util.Log;
 
-import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.BuildConfig;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.data.ForecastSnapshotCache;
+import com.example.android.sunshine.app.data.ForecastSnapshotStore;
 import com.example.android.sunshine.app.data.WeatherContract;
-import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
+import com.example.android.sunshine.core.DayForecast;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastDelta;
+import com.example.android.sunshine.core.ForecastDates;
+import com.example.android.sunshine.core.ForecastParser;
+import com.example.android.sunshine.core.WatchForecast;
 import com.google.android.gms.wearable.Asset;
-import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
-import com.google.android.gms.wearable.Wearable;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -59,12 +53,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Vector;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.TimeZone;
 
-public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
-  GoogleApiClient.ConnectionCallbacks,
-  GoogleApiClient.OnConnectionFailedListener{
+public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
   public static final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
 
@@ -76,20 +68,10 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
   public static final int SYNC_FLEXTIME = SYNC_INTERVAL / 3;
   private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
   private static final int WEATHER_NOTIFICATION_ID = 3004;
-
-
-  private static final String[] NOTIFY_WEATHER_PROJECTION = new String[]{
-    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-  };
-
-  // these indices must match the projection
-  private static final int INDEX_WEATHER_ID = 0;
-  private static final int INDEX_MAX_TEMP = 1;
-  private static final int INDEX_MIN_TEMP = 2;
-  private static final int INDEX_SHORT_DESC = 3;
+  // How many days, starting today, the watch face gets
+  private static final int WEAR_FORECAST_DAYS = 5;
+  // Followed by the hash of an icon that has already been put in the data layer
+  private static final String PREF_WEAR_ICON_SENT_PREFIX = "wear_icon_sent_";
 
   @Retention(RetentionPolicy.SOURCE)
   @IntDef({
@@ -110,32 +92,8 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
   public static final int LOCATION_STATUS_UNKNOWN = 3;
   public static final int LOCATION_STATUS_INVALID = 4;
 
-  GoogleApiClient mGoogleApiClient;
-
   public SunshineSyncAdapter(Context context, boolean autoInitialize) {
     super(context, autoInitialize);
-
-    mGoogleApiClient = new GoogleApiClient.Builder(context)
-      .addConnectionCallbacks(this)
-      .addOnConnectionFailedListener(this)
-      .addApi(Wearable.API)
-      .build();
-  }
-
-  @Override
-  public void onConnectionFailed(ConnectionResult result) {
-      Log.d(LOG_TAG, "onConnectionFailed: " + result);
-  }
-
-  @Override
-  public void onConnected(Bundle connectionHint) {
-    Log.d(LOG_TAG, "onConnected: " + connectionHint);
-    sendWeatherToWearable();
-  }
-
-  @Override
-  public void onConnectionSuspended(int cause) {
-    Log.d(LOG_TAG, "onConnectionSuspended: " + cause);
   }
 
   @Override
@@ -263,170 +221,49 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
    * Take the String representing the complete forecast in JSON Format and
    * pull out the data we need to construct the Strings needed for the wireframes.
    * <p/>
-   * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-   * into an Object hierarchy for us.
+   * The parsing itself lives in {@link ForecastParser}, this stores the result.
    */
   private void getWeatherDataFromJson(String forecastJsonStr,
                                       String locationSetting)
     throws JSONException {
 
-    // Now we have a String representing the complete forecast in JSON Format.
-    // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-    // into an Object hierarchy for us.
-
-    // These are the names of the JSON objects that need to be extracted.
-
-    // Location information
-    final String OWM_CITY = "city";
-    final String OWM_CITY_NAME = "name";
-    final String OWM_COORD = "coord";
-
-    // Location coordinate
-    final String OWM_LATITUDE = "lat";
-    final String OWM_LONGITUDE = "lon";
-
-    // Weather information.  Each day's forecast info is an element of the "list" array.
-    final String OWM_LIST = "list";
-
-    final String OWM_PRESSURE = "pressure";
-    final String OWM_HUMIDITY = "humidity";
-    final String OWM_WINDSPEED = "speed";
-    final String OWM_WIND_DIRECTION = "deg";
-
-    // All temperatures are children of the "temp" object.
-    final String OWM_TEMPERATURE = "temp";
-    final String OWM_MAX = "max";
-    final String OWM_MIN = "min";
-
-    final String OWM_WEATHER = "weather";
-    final String OWM_DESCRIPTION = "main";
-    final String OWM_WEATHER_ID = "id";
-
-    final String OWM_MESSAGE_CODE = "cod";
-
     try {
-      JSONObject forecastJson = new JSONObject(forecastJsonStr);
-      Context context = getContext();
+      long now = System.currentTimeMillis();
+      TimeZone timeZone = TimeZone.getDefault();
+      Forecast forecast = ForecastParser.parse(forecastJsonStr, now, timeZone);
 
       // do we have an error?
-      if (forecastJson.has(OWM_MESSAGE_CODE)) {
-        int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-        switch (errorCode) {
-          case HttpURLConnection.HTTP_OK:
-            break;
-          case HttpURLConnection.HTTP_NOT_FOUND:
-            setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-            return;
-          default:
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-            return;
-        }
+      switch (forecast.getMessageCode()) {
+        case HttpURLConnection.HTTP_OK:
+          break;
+        case HttpURLConnection.HTTP_NOT_FOUND:
+          setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
+          return;
+        default:
+          setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
+          return;
       }
 
-      JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-      JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-      String cityName = cityJson.getString(OWM_CITY_NAME);
-
-      JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-      double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-      double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-      long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+      long locationId = addLocation(getContext(), locationSetting, forecast.getCityName(),
+        forecast.getLatitude(), forecast.getLongitude());
 
       // Insert the new weather information into the database
-      Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
-
-      // OWM returns daily forecasts based upon the local time of the city that is being
-      // asked for, which means that we need to know the GMT offset to translate this data
-      // properly.
-
-      // Since this data is also sent in-order and the first day is always the
-      // current day, we're going to take advantage of that to get a nice
-      // normalized UTC date for all of our weather.
-
-      Time dayTime = new Time();
-      dayTime.setToNow();
-
-      // we start at the day returned by local time. Otherwise this is a mess.
-      int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
-
-      // now we work exclusively in UTC
-      dayTime = new Time();
-
-      for (int i = 0; i < weatherArray.length(); i++) {
-        // These are the values that will be collected.
-        long dateTime;
-        double pressure;
-        int humidity;
-        double windSpeed;
-        double windDirection;
-
-        double high;
-        double low;
-
-        String description;
-        int weatherId;
-
-        // Get the JSON object representing the day
-        JSONObject dayForecast = weatherArray.getJSONObject(i);
-
-        // Cheating to convert this to UTC time, which is what we want anyhow
-        dateTime = dayTime.setJulianDay(julianStartDay + i);
-
-        pressure = dayForecast.getDouble(OWM_PRESSURE);
-        humidity = dayForecast.getInt(OWM_HUMIDITY);
-        windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-        windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-        // Description is in a child array called "weather", which is 1 element long.
-        // That element also contains a weather code.
-        JSONObject weatherObject =
-          dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-        description = weatherObject.getString(OWM_DESCRIPTION);
-        weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-        // Temperatures are in a child object called "temp".  Try not to name variables
-        // "temp" when working with temperature.  It confuses everybody.
-        JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-        high = temperatureObject.getDouble(OWM_MAX);
-        low = temperatureObject.getDouble(OWM_MIN);
-
-        ContentValues weatherValues = new ContentValues();
-
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-
-        cVVector.add(weatherValues);
-      }
+      ContentValues[] cvArray = toContentValues(locationId, forecast.getDays());
 
       // add to database
-      if (cVVector.size() > 0) {
-        ContentValues[] cvArray = new ContentValues[cVVector.size()];
-        cVVector.toArray(cvArray);
+      if (cvArray.length > 0) {
         getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
 
         // delete old data so we don't build up an endless history
+        int yesterday = ForecastDates.getJulianDay(now, timeZone) - 1;
         getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
           WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-          new String[]{Long.toString(dayTime.setJulianDay(julianStartDay - 1))});
+          new String[]{Long.toString(ForecastDates.getStartOfJulianDay(yesterday, timeZone))});
 
-        updateWidgets();
-        updateMuzei();
+        onForecastStored(getContext());
         notifyWeather();
-        // connect to API to send data
-        mGoogleApiClient.connect();
       }
-      Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
+      Log.d(LOG_TAG, "Sync Complete. " + cvArray.length + " Inserted");
       setLocationStatus(getContext(), LOCATION_STATUS_OK);
 
     } catch (JSONException e) {
@@ -436,100 +273,165 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
     }
   }
 
-  private void updateWidgets() {
-    Context context = getContext();
-    // Setting the package ensures that only components in our app will receive the broadcast
-    Intent dataUpdatedIntent = new Intent(ACTION_DATA_UPDATED)
-      .setPackage(context.getPackageName());
-    context.sendBroadcast(dataUpdatedIntent);
-  }
-
-  private void updateMuzei() {
-    // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
-    // Muzei background on lower API level devices
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-      Context context = getContext();
-      context.startService(new Intent(ACTION_DATA_UPDATED)
-        .setClass(context, WeatherMuzeiSource.class));
+  private static ContentValues[] toContentValues(long locationId, List<DayForecast> days) {
+    ContentValues[] cvArray = new ContentValues[days.size()];
+
+    for (int i = 0; i < cvArray.length; i++) {
+      DayForecast day = days.get(i);
+      ContentValues weatherValues = new ContentValues();
+
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, day.getDate());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, day.getHumidity());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, day.getPressure());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, day.getWindSpeed());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, day.getWindDirection());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, day.getHigh());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, day.getLow());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, day.getDescription());
+      weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, day.getWeatherId());
+
+      cvArray[i] = weatherValues;
     }
+    return cvArray;
   }
 
-  private void sendWeatherToWearable() {
+  /**
+   * Brings the cached snapshot, the widgets, Muzei and the watch face up to date after the
+   * forecast was written to the database.
+   */
+  private static void onForecastStored(Context context) {
+    // The provider already dropped the store's snapshot as it wrote, so the cache,
+    // widgets, Muzei, the notification and the wearable all share the one query made below
+    ForecastSnapshotStore snapshotStore = ForecastSnapshotStore.getInstance(context);
 
-    Log.d(LOG_TAG, "sendWeatherToWearable");
+    // Keep a copy of what the list will show, for the next cold start
+    ForecastSnapshotCache.save(context, snapshotStore.getSnapshot());
 
-    final String TOPIC = "/sunshine-weather";
-    final String WEATHER_ID_KEY = "weatherId";
-    final String HIGH_TEMP_KEY = "highTemp";
-    final String LOW_TEMP_KEY = "lowTemp";
-    final String WEATHER_ICON = "weatherIcon";
+    DataUpdatedDispatcher.getInstance(context).requestDispatch();
+    sendWeatherToWearable(context);
+  }
 
-    if (mGoogleApiClient == null) {
-      return;
+  /**
+   * Writes the days of a pushed forecast delta through the provider's bulk insert. Days
+   * already stored are replaced, thanks to the weather table's unique date and location.
+   * <p/>
+   * A delta only holds the days that changed, so it can't be applied to a location with no
+   * stored forecast for today, whether it was never synced or its days have run out; the
+   * caller should sync instead. Deltas for a location other than
+   * the preferred one are stale and are dropped. Does database I/O, so don't call it on the
+   * main thread.
+   *
+   * @return false if the delta couldn't be applied and a sync is needed
+   */
+  public static boolean applyForecastDelta(Context context, ForecastDelta delta) {
+    String locationSetting = Utility.getPreferredLocation(context);
+    if (!locationSetting.equals(delta.getLocationSetting())) {
+      Log.d(LOG_TAG, "Dropping forecast delta for " + delta.getLocationSetting());
+      return true;
+    }
+    long locationId = findLocation(context, locationSetting);
+    if (locationId == -1) {
+      return false;
+    }
+    ForecastSnapshot stored = ForecastSnapshotStore.getInstance(context).getSnapshot();
+    if (stored.getPositionForDate(
+      WeatherContract.normalizeDate(System.currentTimeMillis())) == -1) {
+      Log.d(LOG_TAG, "No stored forecast for today, can't apply forecast delta");
+      return false;
     }
 
-    // query the content provider to get weather info
-    // TODO: this code is in two places.  Can it be refactored?
-
-    Context context = getContext();
-    // Last sync was more than 1 day ago, let's send a notification with the weather.
-    String locationQuery = Utility.getPreferredLocation(context);
-
-    Uri weatherUri = WeatherContract.WeatherEntry
-      .buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-    // we'll query our contentProvider, as always
-    Cursor cursor = context.getContentResolver()
-      .query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
+    ContentValues[] cvArray = toContentValues(locationId, delta.getForecast().getDays());
+    if (cvArray.length > 0) {
+      // The provider skips rows it couldn't insert rather than throwing
+      int inserted = context.getContentResolver().bulkInsert(
+        WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+      if (inserted > 0) {
+        onForecastStored(context);
+      }
+      if (inserted != cvArray.length) {
+        Log.e(LOG_TAG, "Couldn't apply forecast delta, only " + inserted + " of "
+          + cvArray.length + " days inserted");
+        return false;
+      }
+    }
+    Log.d(LOG_TAG, "Forecast delta applied. " + cvArray.length + " Inserted");
+    return true;
+  }
 
-    if (cursor.moveToFirst()) {
+  /**
+   * Sends the next few days to the watch face, which picks today's weather and formats it
+   * itself, so it rolls over at midnight without another sync.
+   */
+  private static void sendWeatherToWearable(Context context) {
 
-      int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-      double high = cursor.getDouble(INDEX_MAX_TEMP);
-      double low = cursor.getDouble(INDEX_MIN_TEMP);
+    Log.d(LOG_TAG, "sendWeatherToWearable");
 
-      String highTemp = Utility.formatTemperature(context, high);
-      String lowTemp = Utility.formatTemperature(context, low);
+    final String TOPIC = "/sunshine-weather";
+    final String FORECAST_KEY = "forecast";
+    final String ICON_HASHES_KEY = "iconHashes";
+
+    ForecastSnapshot data = ForecastSnapshotStore.getInstance(context).getSnapshot();
+    int today = data.getPositionForDate(
+      WeatherContract.normalizeDate(System.currentTimeMillis()));
+
+    if (today != -1) {
+
+      int dayCount = Math.min(WEAR_FORECAST_DAYS, data.size() - today);
+      TimeZone timeZone = TimeZone.getDefault();
+      WatchForecast.Builder forecast =
+        new WatchForecast.Builder(Utility.isMetric(context), dayCount);
+      for (int i = today; i < today + dayCount; i++) {
+        forecast.addDay(ForecastDates.getJulianDay(data.getDate(i), timeZone),
+          data.getWeatherId(i), data.getHigh(i), data.getLow(i));
+      }
 
       PutDataMapRequest putDataMapReq = PutDataMapRequest.create(TOPIC);
-      putDataMapReq.getDataMap().putInt(WEATHER_ID_KEY, weatherId);
-      putDataMapReq.getDataMap().putString(HIGH_TEMP_KEY, highTemp);
-      putDataMapReq.getDataMap().putString(LOW_TEMP_KEY, lowTemp);
-
-      int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-      Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), artResourceId);
-      Asset asset = createAssetFromBitmap(bitmap);
-      putDataMapReq.getDataMap().putAsset(WEATHER_ICON, asset);
+      putDataMapReq.getDataMap().putByteArray(FORECAST_KEY, forecast.build().encode());
+
+      // The watch face ships with the Sunshine art, so only other art packs need their icons
+      // sent. Until a pack's icon has been fetched the watch shows its own.
+      if (!Utility.usingLocalGraphics(context)) {
+        NotificationArtCache artCache = NotificationArtCache.getInstance(context);
+        String[] iconHashes = new String[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+          byte[] icon = artCache.getArtBytes(data.getWeatherId(today + i));
+          iconHashes[i] = icon == null ? "" : sendIconToWearable(context, icon);
+        }
+        putDataMapReq.getDataMap().putStringArray(ICON_HASHES_KEY, iconHashes);
+      }
 
-      PutDataRequest putDataReq = putDataMapReq.asPutDataRequest();
-      PendingResult<DataApi.DataItemResult> pendingResult =
-        Wearable.DataApi.putDataItem(mGoogleApiClient, putDataReq);
-      pendingResult.setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
+      // Queued after the icons, so the watch can find them once it sees the weather
+      WearableSender.getInstance(context).send(putDataMapReq.asPutDataRequest());
+    }
+  }
 
+  /**
+   * Puts an icon in its own data item, named after the hash of its contents, unless that has
+   * been done before. Data items stay in the data layer, so an icon is only ever sent once.
+   *
+   * @param icon the PNG encoded icon
+   * @return the hash the watch face looks the icon up by
+   */
+  private static String sendIconToWearable(Context context, byte[] icon) {
+    final String ICON_PATH_PREFIX = "/sunshine-icon/";
+    final String ICON_KEY = "icon";
+
+    String hash = NotificationArtCache.hash(icon);
+    final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+    final String sentKey = PREF_WEAR_ICON_SENT_PREFIX + hash;
+    if (!prefs.getBoolean(sentKey, false)) {
+      PutDataMapRequest putIconReq = PutDataMapRequest.create(ICON_PATH_PREFIX + hash);
+      putIconReq.getDataMap().putAsset(ICON_KEY, Asset.createFromBytes(icon));
+      WearableSender.getInstance(context).send(putIconReq.asPutDataRequest(), new Runnable() {
         @Override
-        public void onResult(final DataApi.DataItemResult result) {
-
-          if(result.getStatus().isSuccess()) {
-            Log.d(LOG_TAG, "Data item set: " + result.getDataItem().getUri());
-          } else {
-            String msg = String.format(
-              "Data item not set: %s %s",
-              result.getStatus().getStatusCode(),
-              result.getStatus().getStatusMessage()
-              );
-            Log.d(LOG_TAG, msg);
-          }
+        public void run() {
+          prefs.edit().putBoolean(sentKey, true).apply();
         }
       });
+      Log.d(LOG_TAG, "Sending icon " + hash + " (" + icon.length + " bytes)");
     }
-    // once we're done, disconnect
-    mGoogleApiClient.disconnect();
-  }
-
-  private static Asset createAssetFromBitmap(Bitmap bitmap) {
-    final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-    bitmap.compress(Bitmap.CompressFormat.PNG, 100, byteStream);
-    return Asset.createFromBytes(byteStream.toByteArray());
+    return hash;
   }
 
   private void notifyWeather() {
@@ -547,51 +449,21 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
 
       if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
         // Last sync was more than 1 day ago, let's send a notification with the weather.
-        String locationQuery = Utility.getPreferredLocation(context);
-
-        Uri weatherUri = WeatherContract.WeatherEntry
-          .buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
+        ForecastSnapshot data = ForecastSnapshotStore.getInstance(context).getSnapshot();
+        int today = data.getPositionForDate(
+          WeatherContract.normalizeDate(System.currentTimeMillis()));
 
-        // we'll query our contentProvider, as always
-        Cursor cursor = context.getContentResolver()
-          .query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-
-        if (cursor.moveToFirst()) {
-          int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-          double high = cursor.getDouble(INDEX_MAX_TEMP);
-          double low = cursor.getDouble(INDEX_MIN_TEMP);
-          String desc = cursor.getString(INDEX_SHORT_DESC);
+        if (today != -1) {
+          int weatherId = data.getWeatherId(today);
+          double high = data.getHigh(today);
+          double low = data.getLow(today);
+          String desc = data.getDescription(today);
 
           int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
           Resources resources = context.getResources();
-          int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-          String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
-
-          // On Honeycomb and higher devices, we can retrieve the size of the large icon
-          // Prior to that, we use a fixed size
-          @SuppressLint("InlinedApi")
-          int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
-          @SuppressLint("InlinedApi")
-          int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
-          // Retrieve the large icon
-          Bitmap largeIcon;
-          try {
-            largeIcon = Glide.with(context)
-              .load(artUrl)
-              .asBitmap()
-              .error(artResourceId)
-              .fitCenter()
-              .into(largeIconWidth, largeIconHeight).get();
-          } catch (InterruptedException | ExecutionException e) {
-            Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
-            largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
-          }
+
+          // Retrieve the large icon, already sized for the notification
+          Bitmap largeIcon = NotificationArtCache.getInstance(context).getLargeIcon(weatherId);
           String title = context.getString(R.string.app_name);
 
           // Define the text of the forecast.
@@ -637,7 +509,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
           editor.putLong(lastNotificationKey, System.currentTimeMillis());
           editor.commit();
         }
-        cursor.close();
       }
     }
   }
@@ -645,27 +516,19 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
   /**
    * Helper method to handle insertion of a new location in the weather database.
    *
+   * @param context         The context used to reach the content provider
    * @param locationSetting The location string used to request updates from the server.
    * @param cityName        A human-readable city name, e.g "Mountain View"
    * @param lat             the latitude of the city
    * @param lon             the longitude of the city
    * @return the row ID of the added location.
    */
-  long addLocation(String locationSetting, String cityName, double lat, double lon) {
-    long locationId;
-
+  static long addLocation(Context context, String locationSetting, String cityName, double lat,
+                          double lon) {
     // First, check if the location with this city name exists in the db
-    Cursor locationCursor = getContext().getContentResolver().query(
-      WeatherContract.LocationEntry.CONTENT_URI,
-      new String[]{WeatherContract.LocationEntry._ID},
-      WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
-      new String[]{locationSetting},
-      null);
+    long locationId = findLocation(context, locationSetting);
 
-    if (locationCursor.moveToFirst()) {
-      int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
-      locationId = locationCursor.getLong(locationIdIndex);
-    } else {
+    if (locationId == -1) {
       // Now that the content provider is set up, inserting rows of data is pretty simple.
       // First create a ContentValues object to hold the data you want to insert.
       ContentValues locationValues = new ContentValues();
@@ -678,7 +541,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
       locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
 
       // Finally, insert location data into the database.
-      Uri insertedUri = getContext().getContentResolver().insert(
+      Uri insertedUri = context.getContentResolver().insert(
         WeatherContract.LocationEntry.CONTENT_URI,
         locationValues
       );
@@ -687,11 +550,35 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
       locationId = ContentUris.parseId(insertedUri);
     }
 
-    locationCursor.close();
     // Wait, that worked?  Yes!
     return locationId;
   }
 
+  /**
+   * @return the row ID of the location, or -1 if it isn't in the weather database
+   */
+  static long findLocation(Context context, String locationSetting) {
+    Cursor locationCursor = context.getContentResolver().query(
+      WeatherContract.LocationEntry.CONTENT_URI,
+      new String[]{WeatherContract.LocationEntry._ID},
+      WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+      new String[]{locationSetting},
+      null);
+    if (locationCursor == null) {
+      return -1;
+    }
+
+    try {
+      if (locationCursor.moveToFirst()) {
+        int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
+        return locationCursor.getLong(locationIdIndex);
+      }
+      return -1;
+    } finally {
+      locationCursor.close();
+    }
+  }
+
   /**
    * Helper method to schedule the sync adapter periodic execution
    */
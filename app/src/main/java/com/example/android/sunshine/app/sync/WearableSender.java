@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts data items for the watch face through one long-lived {@link GoogleApiClient}.
+ * <p/>
+ * Requests are queued by path and only the newest request for a path is kept, so several
+ * syncs that happen before the data layer is reachable still send a single update. Paths go
+ * out in the order they were last queued, so an item queued after another is never put before
+ * it, even when it replaces an earlier request. The queue is drained on a background thread;
+ * when connecting or a put fails it is retried with exponential backoff. The client stays
+ * connected between syncs, so a sync doesn't pay for binding to Play Services again.
+ * <p/>
+ * The queue is also written to a file, so items still waiting when the process is killed are
+ * sent the next time the sender is used. Delivery callbacks only live in memory and are lost.
+ */
+public class WearableSender {
+  private static final String LOG_TAG = WearableSender.class.getSimpleName();
+
+  private static final long CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long PUT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(2);
+  private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final String QUEUE_FILE_NAME = "wearable_queue.bin";
+  private static final int MAGIC = 0x53554e57; // "SUNW"
+  private static final int VERSION = 1;
+
+  private static WearableSender sInstance;
+
+  private final GoogleApiClient mGoogleApiClient;
+  private final AtomicFile mQueueFile;
+  private final Handler mHandler;
+  private final Runnable mFlush = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  // The newest request for each path, in the order the paths were last queued
+  private final Map<String, Pending> mPending = new LinkedHashMap<>();
+  // Whether a retry is scheduled, in which case new requests wait for it
+  private boolean mRetryScheduled;
+  // Only touched on the sender thread
+  private long mBackoffMillis = INITIAL_BACKOFF_MILLIS;
+
+  private static class Pending {
+    final PutDataRequest mRequest;
+    final Runnable mOnDelivered;
+
+    Pending(PutDataRequest request, Runnable onDelivered) {
+      mRequest = request;
+      mOnDelivered = onDelivered;
+    }
+  }
+
+  private WearableSender(Context context) {
+    mGoogleApiClient = new GoogleApiClient.Builder(context)
+      .addApi(Wearable.API)
+      .build();
+    mQueueFile = new AtomicFile(new File(context.getFilesDir(), QUEUE_FILE_NAME));
+    HandlerThread thread =
+      new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+    thread.start();
+    mHandler = new Handler(thread.getLooper());
+    // Pick up what a previous process left unsent
+    loadQueue();
+    if (!mPending.isEmpty()) {
+      mHandler.post(mFlush);
+    }
+  }
+
+  /**
+   * Reads the queue a previous process left on disk the first time, so don't call it on the
+   * main thread.
+   */
+  public static synchronized WearableSender getInstance(Context context) {
+    if (sInstance == null) {
+      sInstance = new WearableSender(context.getApplicationContext());
+    }
+    return sInstance;
+  }
+
+  public void send(PutDataRequest request) {
+    send(request, null);
+  }
+
+  /**
+   * Queues a data item at the back of the queue, replacing any request for the same path
+   * that hasn't been sent yet. Writes the queue to disk, so don't call it on the main thread.
+   *
+   * @param onDelivered run on the sender thread once the item is in the data layer, or null.
+   *                    Not run if the request is replaced before its put starts, nor if the
+   *                    process dies before it is delivered.
+   */
+  public void send(PutDataRequest request, Runnable onDelivered) {
+    synchronized (this) {
+      String path = request.getUri().getPath();
+      // Removed first, as a put on a key already in the map keeps its old position
+      mPending.remove(path);
+      mPending.put(path, new Pending(request, onDelivered));
+      saveQueue();
+      if (mRetryScheduled) {
+        return;
+      }
+    }
+    mHandler.post(mFlush);
+  }
+
+  private void flush() {
+    synchronized (this) {
+      mRetryScheduled = false;
+      if (mPending.isEmpty()) {
+        return;
+      }
+    }
+
+    if (!mGoogleApiClient.isConnected()) {
+      ConnectionResult result =
+        mGoogleApiClient.blockingConnect(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      if (result.getErrorCode() == ConnectionResult.API_UNAVAILABLE) {
+        // No wearable app on this device; retrying won't change that
+        Log.d(LOG_TAG, "Wearable API unavailable, dropping queued data items");
+        synchronized (this) {
+          mPending.clear();
+          saveQueue();
+        }
+        return;
+      }
+      if (!result.isSuccess()) {
+        Log.d(LOG_TAG, "Couldn't connect: " + result);
+        scheduleRetry();
+        return;
+      }
+    }
+
+    while (true) {
+      String path;
+      Pending pending;
+      synchronized (this) {
+        Iterator<Map.Entry<String, Pending>> iterator = mPending.entrySet().iterator();
+        if (!iterator.hasNext()) {
+          break;
+        }
+        Map.Entry<String, Pending> next = iterator.next();
+        path = next.getKey();
+        pending = next.getValue();
+      }
+
+      DataApi.DataItemResult result = Wearable.DataApi
+        .putDataItem(mGoogleApiClient, pending.mRequest)
+        .await(PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      if (!result.getStatus().isSuccess()) {
+        Log.d(LOG_TAG, String.format("Data item not set: %s %s",
+          result.getStatus().getStatusCode(), result.getStatus().getStatusMessage()));
+        scheduleRetry();
+        return;
+      }
+      Log.d(LOG_TAG, "Data item set: " + result.getDataItem().getUri());
+
+      synchronized (this) {
+        // A newer request for the path may have come in meanwhile; it goes out in its turn
+        if (mPending.get(path) == pending) {
+          mPending.remove(path);
+          saveQueue();
+        }
+      }
+      if (pending.mOnDelivered != null) {
+        pending.mOnDelivered.run();
+      }
+    }
+    mBackoffMillis = INITIAL_BACKOFF_MILLIS;
+  }
+
+  /**
+   * Writes the queued requests to disk. Called with the lock held.
+   */
+  private void saveQueue() {
+    FileOutputStream fileOut = null;
+    try {
+      fileOut = mQueueFile.startWrite();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(mPending.size());
+      for (Pending pending : mPending.values()) {
+        writeRequest(out, pending.mRequest);
+      }
+      out.flush();
+      mQueueFile.finishWrite(fileOut);
+    } catch (IOException e) {
+      Log.e(LOG_TAG, "Couldn't save the queued data items", e);
+      if (fileOut != null) {
+        mQueueFile.failWrite(fileOut);
+      }
+    }
+  }
+
+  /**
+   * Queues the requests saved by a previous process.
+   */
+  private void loadQueue() {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(mQueueFile.openRead()));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return;
+      }
+      for (int count = in.readInt(); count > 0; count--) {
+        PutDataRequest request = readRequest(in);
+        mPending.put(request.getUri().getPath(), new Pending(request, null));
+      }
+    } catch (FileNotFoundException e) {
+      // Nothing was left unsent
+    } catch (IOException e) {
+      Log.w(LOG_TAG, "Couldn't read the queued data items", e);
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException ignored) {
+        }
+      }
+    }
+  }
+
+  private static void writeRequest(DataOutputStream out, PutDataRequest request)
+    throws IOException {
+    out.writeUTF(request.getUri().getPath());
+    writeBytes(out, request.getData());
+    Map<String, Asset> assets = request.getAssets();
+    out.writeInt(assets.size());
+    for (Map.Entry<String, Asset> asset : assets.entrySet()) {
+      if (asset.getValue().getData() == null) {
+        // Only assets created from bytes are queued here
+        throw new IOException("Can't save asset " + asset.getKey());
+      }
+      out.writeUTF(asset.getKey());
+      writeBytes(out, asset.getValue().getData());
+    }
+  }
+
+  private static PutDataRequest readRequest(DataInputStream in) throws IOException {
+    PutDataRequest request = PutDataRequest.create(in.readUTF());
+    byte[] data = readBytes(in);
+    if (data != null) {
+      request.setData(data);
+    }
+    for (int count = in.readInt(); count > 0; count--) {
+      String key = in.readUTF();
+      request.putAsset(key, Asset.createFromBytes(readBytes(in)));
+    }
+    return request;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private void scheduleRetry() {
+    synchronized (this) {
+      mRetryScheduled = true;
+    }
+    Log.d(LOG_TAG, "Retrying in " + mBackoffMillis + "ms");
+    mHandler.postDelayed(mFlush, mBackoffMillis);
+    mBackoffMillis = Math.min(mBackoffMillis * 2, MAX_BACKOFF_MILLIS);
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.annotation.TargetApi;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.SparseIntArray;
+import android.util.TypedValue;
+import android.widget.RemoteViews;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+
+/**
+ * Renders today's weather into every Today widget.
+ * <p/>
+ * A Today widget uses one of three layouts depending on its width, so however many widgets
+ * are placed there are at most three distinct views to build. The renderer builds one
+ * {@link RemoteViews} per layout in use and pushes it to all the widgets using that layout
+ * in a single call. The layout for each widget is remembered when its options change, so an
+ * update doesn't have to look up every widget's size again.
+ */
+class TodayWidgetRenderer {
+    private static final int[] LAYOUTS = {
+            R.layout.widget_today_small,
+            R.layout.widget_today,
+            R.layout.widget_today_large
+    };
+    private static final int BUCKET_SMALL = 0;
+    private static final int BUCKET_DEFAULT = 1;
+    private static final int BUCKET_LARGE = 2;
+    private static final int NO_BUCKET = -1;
+
+    // Widget id to bucket, filled in from onAppWidgetOptionsChanged
+    private static final SparseIntArray sBuckets = new SparseIntArray();
+
+    private TodayWidgetRenderer() {
+    }
+
+    /**
+     * Remembers which layout a widget needs after it was resized.
+     */
+    static void onOptionsChanged(Context context, int appWidgetId, Bundle newOptions) {
+        int bucket = getBucket(context.getResources(), newOptions);
+        synchronized (sBuckets) {
+            sBuckets.put(appWidgetId, bucket);
+        }
+    }
+
+    /**
+     * Forgets the layouts of widgets that were removed.
+     */
+    static void onDeleted(int[] appWidgetIds) {
+        synchronized (sBuckets) {
+            for (int appWidgetId : appWidgetIds) {
+                sBuckets.delete(appWidgetId);
+            }
+        }
+    }
+
+    /**
+     * Shows today's weather, the first day of {@code data}, in every given widget.
+     */
+    static void render(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                       ForecastSnapshot data) {
+        // Sort the widgets into buckets, keeping each bucket's ids in order
+        Resources resources = context.getResources();
+        int[][] idsByBucket = new int[LAYOUTS.length][appWidgetIds.length];
+        int[] counts = new int[LAYOUTS.length];
+        for (int appWidgetId : appWidgetIds) {
+            int bucket = getCachedBucket(appWidgetManager, resources, appWidgetId);
+            idsByBucket[bucket][counts[bucket]++] = appWidgetId;
+        }
+
+        // Extract today's weather from the snapshot
+        int weatherId = data.getWeatherId(0);
+        int weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+        String description = data.getDescription(0);
+        String formattedMaxTemperature = Utility.formatTemperature(context, data.getHigh(0));
+        String formattedMinTemperature = Utility.formatTemperature(context, data.getLow(0));
+
+        // Create an Intent to launch MainActivity
+        Intent launchIntent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, launchIntent, 0);
+
+        for (int bucket = 0; bucket < LAYOUTS.length; bucket++) {
+            if (counts[bucket] == 0) {
+                continue;
+            }
+            RemoteViews views = new RemoteViews(context.getPackageName(), LAYOUTS[bucket]);
+
+            // Add the data to the RemoteViews
+            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+            // Content Descriptions for RemoteViews were only added in ICS MR1
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+                setRemoteContentDescription(views, description);
+            }
+            views.setTextViewText(R.id.widget_description, description);
+            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+
+            // Tell the AppWidgetManager to update every widget in this bucket at once
+            int[] ids = new int[counts[bucket]];
+            System.arraycopy(idsByBucket[bucket], 0, ids, 0, ids.length);
+            appWidgetManager.updateAppWidget(ids, views);
+        }
+    }
+
+    private static int getCachedBucket(AppWidgetManager appWidgetManager, Resources resources,
+                                       int appWidgetId) {
+        int bucket;
+        synchronized (sBuckets) {
+            bucket = sBuckets.get(appWidgetId, NO_BUCKET);
+        }
+        if (bucket == NO_BUCKET) {
+            // Not resized since the process started, so ask for the current size once
+            bucket = getBucket(resources, getOptions(appWidgetManager, appWidgetId));
+            synchronized (sBuckets) {
+                sBuckets.put(appWidgetId, bucket);
+            }
+        }
+        return bucket;
+    }
+
+    private static Bundle getOptions(AppWidgetManager appWidgetManager, int appWidgetId) {
+        // Prior to Jelly Bean, widgets were always their default size
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return null;
+        }
+        // For Jelly Bean and higher devices, widgets can be resized - the current size can be
+        // retrieved from the newly added App Widget Options
+        return getOptionsJellyBean(appWidgetManager, appWidgetId);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static Bundle getOptionsJellyBean(AppWidgetManager appWidgetManager, int appWidgetId) {
+        return appWidgetManager.getAppWidgetOptions(appWidgetId);
+    }
+
+    /**
+     * Finds the correct layout based on the widget's width.
+     */
+    private static int getBucket(Resources resources, Bundle options) {
+        int defaultWidth = resources.getDimensionPixelSize(R.dimen.widget_today_default_width);
+        int largeWidth = resources.getDimensionPixelSize(R.dimen.widget_today_large_width);
+        int widgetWidth = getWidgetWidth(resources, options, defaultWidth);
+        if (widgetWidth >= largeWidth) {
+            return BUCKET_LARGE;
+        } else if (widgetWidth >= defaultWidth) {
+            return BUCKET_DEFAULT;
+        }
+        return BUCKET_SMALL;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static int getWidgetWidth(Resources resources, Bundle options, int defaultWidth) {
+        if (options != null && options.containsKey(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH)) {
+            int minWidthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
+            // The width returned is in dp, but we'll convert it to pixels to match the other widths
+            return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, minWidthDp,
+                    resources.getDisplayMetrics());
+        }
+        return defaultWidth;
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+    private static void setRemoteContentDescription(RemoteViews views, String description) {
+        views.setContentDescription(R.id.widget_icon, description);
+    }
+}
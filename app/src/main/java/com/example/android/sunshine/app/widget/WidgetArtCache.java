@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Art pack images for the detail widget, scaled down to the size of the list icon.
+ * <p/>
+ * A forecast only uses a handful of conditions, so {@link #warm} fetches each of them once
+ * when the widget's data changes, and rows are then rendered straight from memory. Images are
+ * keyed by their art URL, which is made from both the condition and the art pack, so
+ * switching packs never shows the old pack's art.
+ */
+class WidgetArtCache {
+    private static final String LOG_TAG = WidgetArtCache.class.getSimpleName();
+
+    private final Context mContext;
+    private final int mIconSize;
+    private final Map<String, Bitmap> mBitmapsByUrl = new HashMap<>();
+
+    WidgetArtCache(Context context) {
+        mContext = context;
+        mIconSize = context.getResources().getDimensionPixelSize(R.dimen.list_icon);
+    }
+
+    /**
+     * Makes sure the art for every condition in {@code data} is in memory, and drops the art
+     * for conditions that are no longer shown. Blocks on the network, so only call it from
+     * {@code onDataSetChanged}.
+     */
+    void warm(ForecastSnapshot data) {
+        Set<String> urls = new HashSet<>();
+        if (!Utility.usingLocalGraphics(mContext)) {
+            for (int i = 0; i < data.size(); i++) {
+                String url = Utility.getArtUrlForWeatherCondition(mContext, data.getWeatherId(i));
+                if (url != null) {
+                    urls.add(url);
+                }
+            }
+        }
+
+        Set<String> missing = new HashSet<>();
+        synchronized (this) {
+            mBitmapsByUrl.keySet().retainAll(urls);
+            for (String url : urls) {
+                if (!mBitmapsByUrl.containsKey(url)) {
+                    missing.add(url);
+                }
+            }
+        }
+
+        // Fetch outside the lock, so other widgets can keep rendering from what is cached
+        for (String url : missing) {
+            try {
+                Bitmap bitmap = Glide.with(mContext)
+                        .load(url)
+                        .asBitmap()
+                        .fitCenter()
+                        .into(mIconSize, mIconSize).get();
+                synchronized (this) {
+                    mBitmapsByUrl.put(url, bitmap);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                // The row falls back to the bundled icon; we'll try again on the next update
+                Log.e(LOG_TAG, "Error retrieving widget art from " + url, e);
+            }
+        }
+    }
+
+    /**
+     * @return the cached art for a condition, or null if the bundled icon should be used.
+     * Never does any network or decode work.
+     */
+    Bitmap get(int weatherId) {
+        if (Utility.usingLocalGraphics(mContext)) {
+            return null;
+        }
+        String url = Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+        if (url == null) {
+            return null;
+        }
+        synchronized (this) {
+            return mBitmapsByUrl.get(url);
+        }
+    }
+}
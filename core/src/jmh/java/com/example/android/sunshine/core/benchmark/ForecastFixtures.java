@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Builds OpenWeatherMap responses for the benchmarks, so they don't depend on the network.
+ */
+final class ForecastFixtures {
+
+  // Condition codes cycled through the generated days.
+  private static final int[] WEATHER_IDS = {800, 801, 500, 211, 601, 741, 804, 781, 321};
+  private static final String[] DESCRIPTIONS =
+    {"Clear", "Clouds", "Rain", "Thunderstorm", "Snow", "Fog", "Clouds", "Tornado", "Drizzle"};
+
+  private ForecastFixtures() {
+  }
+
+  /**
+   * Returns a forecast response padded with trailing whitespace to exactly
+   * {@code kilobytes} KB, so that timings can be reported per KB parsed.
+   */
+  static String forecastJson(int kilobytes) {
+    int targetLength = kilobytes * 1024;
+    int days = 1;
+    String json = forecastJsonForDays(days);
+    while (true) {
+      String longer = forecastJsonForDays(days + 1);
+      if (longer.length() > targetLength) {
+        break;
+      }
+      json = longer;
+      days++;
+    }
+    if (json.length() > targetLength) {
+      throw new IllegalArgumentException("A single day doesn't fit in " + kilobytes + "KB");
+    }
+    StringBuilder padded = new StringBuilder(targetLength).append(json);
+    while (padded.length() < targetLength) {
+      padded.append(' ');
+    }
+    return padded.toString();
+  }
+
+  static String forecastJsonForDays(int days) {
+    StringBuilder json = new StringBuilder(256 * days)
+      .append("{\"cod\":\"200\",\"message\":0.0032,\"city\":{\"id\":5375480,")
+      .append("\"name\":\"Mountain View\",\"coord\":{\"lon\":-122.08,\"lat\":37.39},")
+      .append("\"country\":\"US\",\"population\":0},\"cnt\":").append(days)
+      .append(",\"list\":[");
+    for (int i = 0; i < days; i++) {
+      int condition = i % WEATHER_IDS.length;
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(String.format(Locale.US,
+        "{\"dt\":%d,\"temp\":{\"day\":%.2f,\"min\":%.2f,\"max\":%.2f,\"night\":%.2f," +
+          "\"eve\":%.2f,\"morn\":%.2f},\"pressure\":%.2f,\"humidity\":%d," +
+          "\"weather\":[{\"id\":%d,\"main\":\"%s\",\"description\":\"%s\",\"icon\":\"01d\"}]," +
+          "\"speed\":%.2f,\"deg\":%d,\"clouds\":%d}",
+        1419019200L + i * 86400L, 14.5 + i, 8.25 + i, 16.75 + i, 9.5, 12.0, 8.5,
+        1012.4 + i, 60 + i, WEATHER_IDS[condition], DESCRIPTIONS[condition],
+        DESCRIPTIONS[condition].toLowerCase(Locale.US), 3.21 + i, (i * 37) % 360, i * 7));
+    }
+    return json.append("]}").toString();
+  }
+}
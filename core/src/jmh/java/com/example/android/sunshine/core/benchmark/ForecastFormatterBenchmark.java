@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core.benchmark;
+
+import com.example.android.sunshine.core.ForecastDates;
+import com.example.android.sunshine.core.ForecastFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the date labelling and temperature formatting done when binding forecast rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForecastFormatterBenchmark {
+
+  // Two weeks of days, so the labels cover today, tomorrow, day names and short dates.
+  private static final int DAYS = 14;
+
+  private ForecastFormatter mFormatter;
+  private long[] mDates;
+  private long mNow;
+  private int mIndex;
+
+  @Setup
+  public void setUp() {
+    TimeZone timeZone = TimeZone.getTimeZone("America/Los_Angeles");
+    mFormatter = new ForecastFormatter(Locale.US, timeZone, "Today", "Tomorrow",
+      "%1$s, %2$s", "%1.0f\u00B0");
+    mNow = 1419033600000L;
+    mDates = new long[DAYS];
+    int today = ForecastDates.getJulianDay(mNow, timeZone);
+    for (int i = 0; i < DAYS; i++) {
+      mDates[i] = ForecastDates.getStartOfJulianDay(today + i, timeZone);
+    }
+  }
+
+  @Benchmark
+  public String friendlyDayString() {
+    mIndex = (mIndex + 1) % DAYS;
+    return mFormatter.getFriendlyDayString(mDates[mIndex], mNow, mIndex == 0);
+  }
+
+  @Benchmark
+  public String fullFriendlyDayString() {
+    mIndex = (mIndex + 1) % DAYS;
+    return mFormatter.getFullFriendlyDayString(mDates[mIndex], mNow);
+  }
+
+  @Benchmark
+  public long normalizeDate() {
+    mIndex = (mIndex + 1) % DAYS;
+    return ForecastDates.normalizeDate(mDates[mIndex] + mIndex * 3600000L,
+      TimeZone.getDefault());
+  }
+
+  @Benchmark
+  public String formatTemperatureMetric() {
+    mIndex = (mIndex + 1) % DAYS;
+    return mFormatter.formatTemperature(mIndex * 1.75 - 5, true);
+  }
+
+  @Benchmark
+  public String formatTemperatureImperial() {
+    mIndex = (mIndex + 1) % DAYS;
+    return mFormatter.formatTemperature(mIndex * 1.75 - 5, false);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core.benchmark;
+
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastParser;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link ForecastParser} takes to get through a KB of forecast JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForecastParserBenchmark {
+
+  // A 16 day forecast, the most OWM will return, is a little under this.
+  private static final int PAYLOAD_KB = 4;
+
+  private String mForecastJson;
+  private TimeZone mTimeZone;
+  private long mNow;
+
+  @Setup
+  public void setUp() {
+    mForecastJson = ForecastFixtures.forecastJson(PAYLOAD_KB);
+    mTimeZone = TimeZone.getTimeZone("America/Los_Angeles");
+    mNow = 1419033600000L;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PAYLOAD_KB)
+  public Forecast parsePerKilobyte() throws JSONException {
+    return ForecastParser.parse(mForecastJson, mNow, mTimeZone);
+  }
+}
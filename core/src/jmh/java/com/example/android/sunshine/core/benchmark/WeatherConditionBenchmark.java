@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core.benchmark;
+
+import com.example.android.sunshine.core.WeatherCondition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the condition lookups done for every forecast row and notification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeatherConditionBenchmark {
+
+  // A spread of codes hitting every branch, plus one that has no match.
+  private static final int[] WEATHER_IDS =
+    {211, 321, 502, 511, 522, 601, 741, 761, 781, 800, 801, 804, 951};
+
+  private static final String ART_PACK =
+    "https://raw.githubusercontent.com/udacity/Sunshine-Version-2/sunshine_master/app/src/main/res/drawable-xxhdpi/art_%s.png";
+
+  private int mIndex;
+
+  private int nextWeatherId() {
+    mIndex = (mIndex + 1) % WEATHER_IDS.length;
+    return WEATHER_IDS[mIndex];
+  }
+
+  @Benchmark
+  public WeatherCondition forWeatherId() {
+    return WeatherCondition.forWeatherId(nextWeatherId());
+  }
+
+  @Benchmark
+  public String artUrl() {
+    WeatherCondition condition = WeatherCondition.forWeatherId(nextWeatherId());
+    return condition == null ? null : condition.getArtUrl(ART_PACK);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The hour, minute, meridian and date strings shown by a digital clock.
+ * <p/>
+ * A watch face redraws every second, but these strings change at most once a minute, and
+ * the date once a day. Every hour and minute string is built up front, and the date is only
+ * formatted again when the day changes, so calling {@link #update} on every frame doesn't
+ * allocate anything. Not thread safe.
+ */
+public class ClockText {
+
+  private static final long SECOND_IN_MILLIS = 1000;
+  private static final long MINUTE_IN_MILLIS = 60 * SECOND_IN_MILLIS;
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  private final String[] mHours24 = new String[24];
+  private final String[] mHours12 = new String[12];
+  // Also used for seconds
+  private final String[] mMinutes = new String[60];
+  private final String mAm;
+  private final String mPm;
+  private final SimpleDateFormat mDateFormat;
+  private TimeZone mTimeZone;
+
+  private String mHourText;
+  private String mMinuteText;
+  private String mMeridianText;
+  private String mDateText;
+  private long mLastMinute = Long.MIN_VALUE;
+  private long mLastDay = Long.MIN_VALUE;
+  private boolean mLast24Hour;
+
+  /**
+   * @param locale         the locale used to format numbers and the date
+   * @param timeZone       the time zone of the wall clock
+   * @param twoDigitFormat a format for two digit hours and minutes, e.g. "%02d"
+   * @param datePattern    a {@link SimpleDateFormat} pattern for the date
+   * @param am             the localized "AM"
+   * @param pm             the localized "PM"
+   */
+  public ClockText(Locale locale, TimeZone timeZone, String twoDigitFormat, String datePattern,
+                   String am, String pm) {
+    for (int hour = 0; hour < mHours24.length; hour++) {
+      mHours24[hour] = String.format(locale, twoDigitFormat, hour);
+    }
+    // 12 hour clocks show midnight and noon as 12 rather than 0
+    mHours12[0] = String.format(locale, "%d", 12);
+    for (int hour = 1; hour < mHours12.length; hour++) {
+      mHours12[hour] = String.format(locale, "%d", hour);
+    }
+    for (int minute = 0; minute < mMinutes.length; minute++) {
+      mMinutes[minute] = String.format(locale, twoDigitFormat, minute);
+    }
+    mAm = am;
+    mPm = pm;
+    mDateFormat = new SimpleDateFormat(datePattern, locale);
+    setTimeZone(timeZone);
+  }
+
+  /**
+   * Switches to another time zone. The next {@link #update} rebuilds every string.
+   */
+  public void setTimeZone(TimeZone timeZone) {
+    mTimeZone = timeZone;
+    mDateFormat.setTimeZone(timeZone);
+    mLastMinute = Long.MIN_VALUE;
+    mLastDay = Long.MIN_VALUE;
+  }
+
+  /**
+   * Brings the strings up to date for {@code now}.
+   *
+   * @param now       the current time, in UTC milliseconds
+   * @param is24Hour  whether hours go from 0 to 23 rather than 1 to 12
+   * @return true if any of the strings changed since the last call
+   */
+  public boolean update(long now, boolean is24Hour) {
+    long localMinute = floorDiv(now + mTimeZone.getOffset(now), MINUTE_IN_MILLIS);
+    if (localMinute == mLastMinute && is24Hour == mLast24Hour) {
+      return false;
+    }
+    mLastMinute = localMinute;
+    mLast24Hour = is24Hour;
+
+    int minuteOfDay =
+      (int) (localMinute - floorDiv(localMinute, MINUTES_PER_DAY) * MINUTES_PER_DAY);
+    int hour = minuteOfDay / 60;
+    mHourText = is24Hour ? mHours24[hour] : mHours12[hour % 12];
+    mMinuteText = mMinutes[minuteOfDay % 60];
+    mMeridianText = hour < 12 ? mAm : mPm;
+
+    long day = floorDiv(localMinute, MINUTES_PER_DAY);
+    if (day != mLastDay) {
+      mLastDay = day;
+      mDateText = mDateFormat.format(new Date(now));
+    }
+    return true;
+  }
+
+  public String getHourText() {
+    return mHourText;
+  }
+
+  public String getMinuteText() {
+    return mMinuteText;
+  }
+
+  /**
+   * @return the localized "AM" or "PM"; only meaningful on a 12 hour clock
+   */
+  public String getMeridianText() {
+    return mMeridianText;
+  }
+
+  public String getDateText() {
+    return mDateText;
+  }
+
+  /**
+   * Returns the two digit seconds for {@code now}. Unlike the other strings this changes
+   * every second, so it is looked up on each call rather than by {@link #update}.
+   */
+  public String getSecondText(long now) {
+    long second = floorDiv(now, SECOND_IN_MILLIS);
+    return mMinutes[(int) (second - floorDiv(second, 60) * 60)];
+  }
+
+  // Rounds towards negative infinity, so times before the epoch land on the right minute
+  private static long floorDiv(long dividend, long divisor) {
+    long quotient = dividend / divisor;
+    if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+      quotient--;
+    }
+    return quotient;
+  }
+}
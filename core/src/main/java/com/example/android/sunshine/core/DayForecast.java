@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * One day of forecast, as returned by OpenWeatherMap. Temperatures are in Celsius.
+ */
+public final class DayForecast {
+
+  private final long mDate;
+  private final int mWeatherId;
+  private final String mDescription;
+  private final double mHigh;
+  private final double mLow;
+  private final int mHumidity;
+  private final double mPressure;
+  private final double mWindSpeed;
+  private final double mWindDirection;
+
+  public DayForecast(long date, int weatherId, String description, double high, double low,
+                     int humidity, double pressure, double windSpeed, double windDirection) {
+    mDate = date;
+    mWeatherId = weatherId;
+    mDescription = description;
+    mHigh = high;
+    mLow = low;
+    mHumidity = humidity;
+    mPressure = pressure;
+    mWindSpeed = windSpeed;
+    mWindDirection = windDirection;
+  }
+
+  /**
+   * @return the normalized date of this forecast, in UTC milliseconds
+   */
+  public long getDate() {
+    return mDate;
+  }
+
+  public int getWeatherId() {
+    return mWeatherId;
+  }
+
+  public String getDescription() {
+    return mDescription;
+  }
+
+  public double getHigh() {
+    return mHigh;
+  }
+
+  public double getLow() {
+    return mLow;
+  }
+
+  public int getHumidity() {
+    return mHumidity;
+  }
+
+  public double getPressure() {
+    return mPressure;
+  }
+
+  public double getWindSpeed() {
+    return mWindSpeed;
+  }
+
+  public double getWindDirection() {
+    return mWindDirection;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Counts durations in buckets whose bounds double, for telemetry that runs for as long as the
+ * process does.
+ * <p/>
+ * Unlike {@link DurationStats} no samples are kept, so recording never allocates and never
+ * drops anything, at the cost of percentiles only being known to within a bucket. Not
+ * thread-safe.
+ */
+public final class DurationHistogram {
+
+  private final long[] mUpperBounds;
+  // One more than the bounds, for durations past the last one
+  private final long[] mCounts;
+  private long mTotalCount;
+  private long mTotal;
+  private long mMax;
+
+  /**
+   * @param firstUpperBound the upper bound of the first bucket, which each further bucket
+   *                        doubles
+   * @param bucketCount     the number of bounded buckets
+   */
+  public DurationHistogram(long firstUpperBound, int bucketCount) {
+    if (firstUpperBound <= 0 || bucketCount <= 0) {
+      throw new IllegalArgumentException("Bad buckets " + firstUpperBound + ", " + bucketCount);
+    }
+    mUpperBounds = new long[bucketCount];
+    long bound = firstUpperBound;
+    for (int i = 0; i < bucketCount; i++) {
+      mUpperBounds[i] = bound;
+      bound *= 2;
+    }
+    mCounts = new long[bucketCount + 1];
+  }
+
+  public void record(long duration) {
+    int bucket = 0;
+    while (bucket < mUpperBounds.length && duration > mUpperBounds[bucket]) {
+      bucket++;
+    }
+    mCounts[bucket]++;
+    mTotalCount++;
+    mTotal += duration;
+    if (duration > mMax) {
+      mMax = duration;
+    }
+  }
+
+  public void reset() {
+    for (int i = 0; i < mCounts.length; i++) {
+      mCounts[i] = 0;
+    }
+    mTotalCount = 0;
+    mTotal = 0;
+    mMax = 0;
+  }
+
+  public long getCount() {
+    return mTotalCount;
+  }
+
+  public long getMax() {
+    return mMax;
+  }
+
+  /**
+   * @return the mean duration, or 0 if nothing was recorded
+   */
+  public long getMean() {
+    return mTotalCount == 0 ? 0 : mTotal / mTotalCount;
+  }
+
+  /**
+   * @return the number of buckets, including the last, unbounded one
+   */
+  public int getBucketCount() {
+    return mCounts.length;
+  }
+
+  /**
+   * @return the largest duration counted in a bucket, or {@link Long#MAX_VALUE} for the last
+   */
+  public long getUpperBound(int bucket) {
+    return bucket < mUpperBounds.length ? mUpperBounds[bucket] : Long.MAX_VALUE;
+  }
+
+  public long getBucket(int bucket) {
+    return mCounts[bucket];
+  }
+
+  /**
+   * Returns an upper bound for a percentile: the bound of the bucket holding the nearest-rank
+   * duration, or the longest duration recorded if that is lower.
+   *
+   * @param percentile between 0 and 100
+   * @return the bound, or 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile out of range: " + percentile);
+    }
+    if (mTotalCount == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(percentile / 100 * mTotalCount), 1);
+    long seen = 0;
+    for (int bucket = 0; bucket < mCounts.length; bucket++) {
+      seen += mCounts[bucket];
+      if (seen >= rank) {
+        return Math.min(getUpperBound(bucket), mMax);
+      }
+    }
+    return mMax;
+  }
+}
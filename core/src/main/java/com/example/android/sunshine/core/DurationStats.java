@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.Arrays;
+
+/**
+ * Collects durations, such as frame or bind times, and summarizes them as percentiles.
+ * <p/>
+ * Samples are kept in a fixed size array, so recording never allocates. Once it is full,
+ * further samples are counted as dropped but otherwise ignored. Not thread-safe.
+ */
+public final class DurationStats {
+
+  private final long[] mSamples;
+  private int mCount;
+  private int mDropped;
+  private long mMax;
+
+  /**
+   * @param capacity the most samples kept between resets
+   */
+  public DurationStats(int capacity) {
+    mSamples = new long[capacity];
+  }
+
+  public void record(long duration) {
+    if (mCount == mSamples.length) {
+      mDropped++;
+      return;
+    }
+    mSamples[mCount++] = duration;
+    if (duration > mMax) {
+      mMax = duration;
+    }
+  }
+
+  public void reset() {
+    mCount = 0;
+    mDropped = 0;
+    mMax = 0;
+  }
+
+  /**
+   * @return the number of samples kept
+   */
+  public int getCount() {
+    return mCount;
+  }
+
+  /**
+   * @return the number of samples ignored because the array was full
+   */
+  public int getDroppedCount() {
+    return mDropped;
+  }
+
+  public long getMax() {
+    return mMax;
+  }
+
+  /**
+   * @return the number of samples longer than {@code threshold}
+   */
+  public int countAbove(long threshold) {
+    int above = 0;
+    for (int i = 0; i < mCount; i++) {
+      if (mSamples[i] > threshold) {
+        above++;
+      }
+    }
+    return above;
+  }
+
+  /**
+   * Returns the nearest-rank percentile of the samples, e.g. 90 for the duration that 90% of
+   * the samples are at or under. Sorts a copy of the samples, so this is meant for reports
+   * rather than the recording path.
+   *
+   * @param percentile between 0 and 100
+   * @return the percentile, or 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile out of range: " + percentile);
+    }
+    if (mCount == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(mSamples, mCount);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * mCount);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed OpenWeatherMap daily forecast response: the city it is for, and its days in
+ * date order.
+ */
+public final class Forecast {
+
+  private final int mMessageCode;
+  private final String mCityName;
+  private final double mLatitude;
+  private final double mLongitude;
+  private final List<DayForecast> mDays;
+
+  public Forecast(String cityName, double latitude, double longitude, List<DayForecast> days) {
+    this(HttpURLConnection.HTTP_OK, cityName, latitude, longitude, days);
+  }
+
+  private Forecast(int messageCode, String cityName, double latitude, double longitude,
+                   List<DayForecast> days) {
+    mMessageCode = messageCode;
+    mCityName = cityName;
+    mLatitude = latitude;
+    mLongitude = longitude;
+    mDays = Collections.unmodifiableList(days);
+  }
+
+  /**
+   * Creates a forecast for a response the server flagged as an error.
+   *
+   * @param messageCode the HTTP status the server put in the "cod" field
+   */
+  public static Forecast error(int messageCode) {
+    return new Forecast(messageCode, null, 0, 0, Collections.<DayForecast>emptyList());
+  }
+
+  /**
+   * @return the HTTP status reported by the server, {@link HttpURLConnection#HTTP_OK} if
+   * the forecast is usable
+   */
+  public int getMessageCode() {
+    return mMessageCode;
+  }
+
+  public boolean isSuccessful() {
+    return mMessageCode == HttpURLConnection.HTTP_OK;
+  }
+
+  public String getCityName() {
+    return mCityName;
+  }
+
+  public double getLatitude() {
+    return mLatitude;
+  }
+
+  public double getLongitude() {
+    return mLongitude;
+  }
+
+  public List<DayForecast> getDays() {
+    return mDays;
+  }
+}
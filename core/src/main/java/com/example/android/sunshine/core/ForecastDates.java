@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.TimeZone;
+
+/**
+ * Julian day arithmetic used to normalize forecast dates. This mirrors what
+ * {@code android.text.format.Time} does for us on the device, but only relies on
+ * {@link TimeZone} so it can be used (and measured) off-device.
+ */
+public final class ForecastDates {
+
+  public static final long DAY_IN_MILLIS = 1000L * 60 * 60 * 24;
+
+  // The Julian day of the epoch, that is, January 1, 1970 on the Gregorian calendar.
+  public static final int EPOCH_JULIAN_DAY = 2440588;
+
+  private ForecastDates() {
+  }
+
+  /**
+   * Computes the Julian day number for a point in time.
+   *
+   * @param millis       the time in UTC milliseconds
+   * @param offsetMillis the UTC offset, in milliseconds, of the wall clock to use
+   * @return the Julian day
+   */
+  public static int getJulianDay(long millis, long offsetMillis) {
+    long julianDay = (millis + offsetMillis) / DAY_IN_MILLIS;
+    return (int) julianDay + EPOCH_JULIAN_DAY;
+  }
+
+  /**
+   * Computes the Julian day number for a point in time, using the offset that
+   * {@code timeZone} had at that instant.
+   */
+  public static int getJulianDay(long millis, TimeZone timeZone) {
+    return getJulianDay(millis, timeZone.getOffset(millis));
+  }
+
+  /**
+   * Returns the first millisecond of the given Julian day, as seen by a wall clock in
+   * {@code timeZone}.
+   *
+   * @param julianDay the Julian day
+   * @param timeZone  the time zone the day starts in
+   * @return midnight of that day, in UTC milliseconds
+   */
+  public static long getStartOfJulianDay(int julianDay, TimeZone timeZone) {
+    long utcMidnight = (julianDay - EPOCH_JULIAN_DAY) * DAY_IN_MILLIS;
+    // The offset depends on the instant we are computing, so guess with the raw offset and
+    // correct once. This settles even when midnight falls next to a daylight savings switch.
+    long guess = utcMidnight - timeZone.getOffset(utcMidnight - timeZone.getRawOffset());
+    return utcMidnight - timeZone.getOffset(guess);
+  }
+
+  /**
+   * Normalizes a date to the beginning of its day. All dates that go into the database
+   * pass through here, so that it's easy to query for an exact date.
+   *
+   * @param millis   the date in UTC milliseconds
+   * @param timeZone the time zone the day is in
+   * @return midnight of the day containing {@code millis}
+   */
+  public static long normalizeDate(long millis, TimeZone timeZone) {
+    return getStartOfJulianDay(getJulianDay(millis, timeZone), timeZone);
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * The days of a location's forecast that changed since the server last pushed it, delivered
+ * through GCM so the device doesn't have to wait for its next sync.
+ */
+public final class ForecastDelta {
+
+  private final String mLocationSetting;
+  private final Forecast mForecast;
+
+  public ForecastDelta(String locationSetting, Forecast forecast) {
+    mLocationSetting = locationSetting;
+    mForecast = forecast;
+  }
+
+  /**
+   * @return the location setting the delta is for, as entered by the user
+   */
+  public String getLocationSetting() {
+    return mLocationSetting;
+  }
+
+  /**
+   * @return the city and the changed days, in date order
+   */
+  public Forecast getForecast() {
+    return mForecast;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Reads the forecast deltas pushed through GCM.
+ * <p/>
+ * GCM payloads are limited to 4KB, so a delta only carries the days that changed, each as a
+ * flat array instead of the nested objects OpenWeatherMap uses:
+ * <pre>
+ * {"v":1,"loc":"94043","city":"Mountain View","lat":37.39,"lon":-122.08,
+ *  "days":[[2457012,500,"Rain",15.1,8.2,81,1012.4,3.21,170], ...]}
+ * </pre>
+ * Each day is its Julian day, weather id, description, high, low, humidity, pressure, wind
+ * speed and wind direction. Temperatures are in Celsius.
+ */
+public final class ForecastDeltaParser {
+
+  public static final int VERSION = 1;
+
+  private static final String KEY_VERSION = "v";
+  private static final String KEY_LOCATION = "loc";
+  private static final String KEY_CITY = "city";
+  private static final String KEY_LATITUDE = "lat";
+  private static final String KEY_LONGITUDE = "lon";
+  private static final String KEY_DAYS = "days";
+
+  // Positions within a day's array
+  private static final int DAY_JULIAN_DAY = 0;
+  private static final int DAY_WEATHER_ID = 1;
+  private static final int DAY_DESCRIPTION = 2;
+  private static final int DAY_HIGH = 3;
+  private static final int DAY_LOW = 4;
+  private static final int DAY_HUMIDITY = 5;
+  private static final int DAY_PRESSURE = 6;
+  private static final int DAY_WIND_SPEED = 7;
+  private static final int DAY_WIND_DIRECTION = 8;
+
+  private ForecastDeltaParser() {
+  }
+
+  /**
+   * Parses a delta payload.
+   *
+   * @param deltaJsonStr the payload
+   * @param timeZone     the time zone the forecast days are normalized in
+   * @return the delta, with its days in date order
+   * @throws JSONException if the payload is malformed or of a version we don't understand
+   */
+  public static ForecastDelta parse(String deltaJsonStr, TimeZone timeZone)
+    throws JSONException {
+    JSONObject deltaJson = new JSONObject(deltaJsonStr);
+
+    int version = deltaJson.getInt(KEY_VERSION);
+    if (version != VERSION) {
+      throw new JSONException("Unsupported forecast delta version " + version);
+    }
+
+    JSONArray daysJson = deltaJson.getJSONArray(KEY_DAYS);
+    int dayCount = daysJson.length();
+    List<DayForecast> days = new ArrayList<>(dayCount);
+    int previousJulianDay = Integer.MIN_VALUE;
+    for (int i = 0; i < dayCount; i++) {
+      JSONArray dayJson = daysJson.getJSONArray(i);
+      int julianDay = dayJson.getInt(DAY_JULIAN_DAY);
+      if (julianDay <= previousJulianDay) {
+        throw new JSONException("Forecast delta days out of order at " + i);
+      }
+      previousJulianDay = julianDay;
+
+      days.add(new DayForecast(ForecastDates.getStartOfJulianDay(julianDay, timeZone),
+        dayJson.getInt(DAY_WEATHER_ID),
+        dayJson.getString(DAY_DESCRIPTION),
+        dayJson.getDouble(DAY_HIGH),
+        dayJson.getDouble(DAY_LOW),
+        dayJson.getInt(DAY_HUMIDITY),
+        dayJson.getDouble(DAY_PRESSURE),
+        dayJson.getDouble(DAY_WIND_SPEED),
+        dayJson.getDouble(DAY_WIND_DIRECTION)));
+    }
+
+    Forecast forecast = new Forecast(deltaJson.getString(KEY_CITY),
+      deltaJson.getDouble(KEY_LATITUDE), deltaJson.getDouble(KEY_LONGITUDE), days);
+    return new ForecastDelta(deltaJson.getString(KEY_LOCATION), forecast);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Builds the user visible date labels and temperatures for forecasts.
+ * <p/>
+ * The localized pieces ("Today", the date and temperature formats) are handed in by the
+ * caller, so this class doesn't need an Android context. Date formats are created lazily
+ * and reused, which means an instance must not be shared between threads.
+ */
+public class ForecastFormatter {
+
+  private final Locale mLocale;
+  private final TimeZone mTimeZone;
+  private final String mToday;
+  private final String mTomorrow;
+  private final String mFullFriendlyDateFormat;
+  private final String mTemperatureFormat;
+
+  private SimpleDateFormat mDayNameFormat;
+  private SimpleDateFormat mMonthDayFormat;
+  private SimpleDateFormat mShortenedDateFormat;
+
+  /**
+   * @param locale                 the locale used for day and month names
+   * @param timeZone               the time zone the user sees dates in
+   * @param today                  the localized word for "Today"
+   * @param tomorrow               the localized word for "Tomorrow"
+   * @param fullFriendlyDateFormat a format taking a day name and a month day,
+   *                               e.g. "%1$s, %2$s"
+   * @param temperatureFormat      a format taking a temperature as a double, e.g. "%1.0f°"
+   */
+  public ForecastFormatter(Locale locale, TimeZone timeZone, String today, String tomorrow,
+                           String fullFriendlyDateFormat, String temperatureFormat) {
+    mLocale = locale;
+    mTimeZone = timeZone;
+    mToday = today;
+    mTomorrow = tomorrow;
+    mFullFriendlyDateFormat = fullFriendlyDateFormat;
+    mTemperatureFormat = temperatureFormat;
+  }
+
+  /**
+   * Converts a temperature stored in Celsius into the user's units.
+   */
+  public static double toDisplayUnits(double celsius, boolean isMetric) {
+    return isMetric ? celsius : (celsius * 1.8) + 32;
+  }
+
+  /**
+   * Data is stored in Celsius.  If the user prefers to see Fahrenheit, the value is
+   * converted before it is formatted.
+   */
+  public String formatTemperature(double celsius, boolean isMetric) {
+    // For presentation, assume the user doesn't care about tenths of a degree.
+    return String.format(mLocale, mTemperatureFormat, toDisplayUnits(celsius, isMetric));
+  }
+
+  /**
+   * Converts a normalized forecast date into something to display to users.
+   * <p/>
+   * For today: "Today, June 8"
+   * For tomorrow:  "Tomorrow"
+   * For the next 5 days: "Wednesday" (just the day name)
+   * For all days after that: "Mon Jun 8"
+   *
+   * @param dateInMillis     the date in milliseconds
+   * @param now              the current time in milliseconds
+   * @param displayLongToday whether today gets the long "Today, June 8" form
+   * @return a user-friendly representation of the date.
+   */
+  public String getFriendlyDayString(long dateInMillis, long now, boolean displayLongToday) {
+    long offset = mTimeZone.getOffset(now);
+    int julianDay = ForecastDates.getJulianDay(dateInMillis, offset);
+    int currentJulianDay = ForecastDates.getJulianDay(now, offset);
+
+    // If the date we're building the String for is today's date, the format
+    // is "Today, June 24"
+    if (displayLongToday && julianDay == currentJulianDay) {
+      return String.format(mLocale, mFullFriendlyDateFormat,
+        mToday, getFormattedMonthDay(dateInMillis));
+    } else if (julianDay < currentJulianDay + 7) {
+      // If the input date is less than a week in the future, just return the day name.
+      return getDayName(julianDay, currentJulianDay, dateInMillis);
+    } else {
+      // Otherwise, use the form "Mon Jun 3"
+      if (mShortenedDateFormat == null) {
+        mShortenedDateFormat = createDateFormat("EEE MMM dd");
+      }
+      return mShortenedDateFormat.format(dateInMillis);
+    }
+  }
+
+  /**
+   * Formats a date as its day name and month day, e.g. "Wednesday, June 24".
+   */
+  public String getFullFriendlyDayString(long dateInMillis, long now) {
+    return String.format(mLocale, mFullFriendlyDateFormat,
+      getDayName(dateInMillis, now), getFormattedMonthDay(dateInMillis));
+  }
+
+  /**
+   * Given a day, returns just the name to use for that day.
+   * E.g "today", "tomorrow", "wednesday".
+   */
+  public String getDayName(long dateInMillis, long now) {
+    long offset = mTimeZone.getOffset(now);
+    return getDayName(ForecastDates.getJulianDay(dateInMillis, offset),
+      ForecastDates.getJulianDay(now, offset), dateInMillis);
+  }
+
+  private String getDayName(int julianDay, int currentJulianDay, long dateInMillis) {
+    if (julianDay == currentJulianDay) {
+      return mToday;
+    } else if (julianDay == currentJulianDay + 1) {
+      return mTomorrow;
+    }
+    // Otherwise, the format is just the day of the week (e.g "Wednesday").
+    if (mDayNameFormat == null) {
+      mDayNameFormat = createDateFormat("EEEE");
+    }
+    return mDayNameFormat.format(dateInMillis);
+  }
+
+  /**
+   * Formats a date as "Month day", e.g "June 24".
+   */
+  public String getFormattedMonthDay(long dateInMillis) {
+    if (mMonthDayFormat == null) {
+      mMonthDayFormat = createDateFormat("MMMM dd");
+    }
+    return mMonthDayFormat.format(dateInMillis);
+  }
+
+  private SimpleDateFormat createDateFormat(String pattern) {
+    SimpleDateFormat format = new SimpleDateFormat(pattern, mLocale);
+    format.setTimeZone(mTimeZone);
+    return format;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Turns the JSON returned by the OpenWeatherMap daily forecast API into a {@link Forecast}.
+ */
+public final class ForecastParser {
+
+  // These are the names of the JSON objects that need to be extracted.
+
+  // Location information
+  private static final String OWM_CITY = "city";
+  private static final String OWM_CITY_NAME = "name";
+  private static final String OWM_COORD = "coord";
+
+  // Location coordinate
+  private static final String OWM_LATITUDE = "lat";
+  private static final String OWM_LONGITUDE = "lon";
+
+  // Weather information.  Each day's forecast info is an element of the "list" array.
+  private static final String OWM_LIST = "list";
+
+  private static final String OWM_PRESSURE = "pressure";
+  private static final String OWM_HUMIDITY = "humidity";
+  private static final String OWM_WINDSPEED = "speed";
+  private static final String OWM_WIND_DIRECTION = "deg";
+
+  // All temperatures are children of the "temp" object.
+  private static final String OWM_TEMPERATURE = "temp";
+  private static final String OWM_MAX = "max";
+  private static final String OWM_MIN = "min";
+
+  private static final String OWM_WEATHER = "weather";
+  private static final String OWM_DESCRIPTION = "main";
+  private static final String OWM_WEATHER_ID = "id";
+
+  private static final String OWM_MESSAGE_CODE = "cod";
+
+  private ForecastParser() {
+  }
+
+  /**
+   * Parses a forecast response.
+   * <p/>
+   * OWM returns daily forecasts based upon the local time of the city that is being asked
+   * for, which means that we need to know the GMT offset to translate this data properly.
+   * Since the data is sent in-order and the first day is always the current day, we take
+   * advantage of that to get a normalized date for every day, starting from {@code now}.
+   *
+   * @param forecastJsonStr the complete response body
+   * @param now             the current time, in UTC milliseconds
+   * @param timeZone        the time zone the forecast days are normalized in
+   * @return the parsed forecast; check {@link Forecast#isSuccessful()} before using it
+   * @throws JSONException if the response is not a forecast
+   */
+  public static Forecast parse(String forecastJsonStr, long now, TimeZone timeZone)
+    throws JSONException {
+    JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+    // do we have an error?
+    if (forecastJson.has(OWM_MESSAGE_CODE)) {
+      int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+      if (errorCode != HttpURLConnection.HTTP_OK) {
+        return Forecast.error(errorCode);
+      }
+    }
+
+    JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+
+    JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+    String cityName = cityJson.getString(OWM_CITY_NAME);
+
+    JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+    double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+    double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+    // we start at the day returned by local time. Otherwise this is a mess.
+    int julianStartDay = ForecastDates.getJulianDay(now, timeZone);
+
+    int dayCount = weatherArray.length();
+    List<DayForecast> days = new ArrayList<>(dayCount);
+    for (int i = 0; i < dayCount; i++) {
+      // Get the JSON object representing the day
+      JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+      long dateTime = ForecastDates.getStartOfJulianDay(julianStartDay + i, timeZone);
+
+      double pressure = dayForecast.getDouble(OWM_PRESSURE);
+      int humidity = dayForecast.getInt(OWM_HUMIDITY);
+      double windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
+      double windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
+
+      // Description is in a child array called "weather", which is 1 element long.
+      // That element also contains a weather code.
+      JSONObject weatherObject =
+        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+      String description = weatherObject.getString(OWM_DESCRIPTION);
+      int weatherId = weatherObject.getInt(OWM_WEATHER_ID);
+
+      // Temperatures are in a child object called "temp".  Try not to name variables
+      // "temp" when working with temperature.  It confuses everybody.
+      JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+      double high = temperatureObject.getDouble(OWM_MAX);
+      double low = temperatureObject.getDouble(OWM_MIN);
+
+      days.add(new DayForecast(dateTime, weatherId, description, high, low,
+        humidity, pressure, windSpeed, windDirection));
+    }
+
+    return new Forecast(cityName, cityLatitude, cityLongitude, days);
+  }
+}
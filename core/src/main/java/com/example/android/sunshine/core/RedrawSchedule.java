@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Decides when a clock that only changes every {@code period} milliseconds needs to redraw,
+ * and counts how often it actually woke up to do so.
+ * <p/>
+ * Redraws are aligned to the period, e.g. to the start of every minute, so the display
+ * changes right as the clock rolls over. Wakeups are counted per hour of UTC time, which
+ * makes the cost of a schedule easy to compare. Not thread-safe.
+ */
+public final class RedrawSchedule {
+
+  public static final long SECOND_IN_MILLIS = 1000;
+  public static final long MINUTE_IN_MILLIS = 60 * SECOND_IN_MILLIS;
+  public static final long HOUR_IN_MILLIS = 60 * MINUTE_IN_MILLIS;
+
+  private final long mPeriod;
+
+  private long mCurrentHour = Long.MIN_VALUE;
+  private int mCurrentHourWakeups;
+  private int mLastHourWakeups = -1;
+
+  /**
+   * @param period the time between redraws in milliseconds; must divide an hour evenly
+   */
+  public RedrawSchedule(long period) {
+    if (period <= 0 || HOUR_IN_MILLIS % period != 0) {
+      throw new IllegalArgumentException("Period must divide an hour: " + period);
+    }
+    mPeriod = period;
+  }
+
+  public long getPeriod() {
+    return mPeriod;
+  }
+
+  /**
+   * @param now the current time, in UTC milliseconds
+   * @return how long to wait until the start of the next period, never 0
+   */
+  public long getDelayUntilNextRedraw(long now) {
+    long intoPeriod = now % mPeriod;
+    if (intoPeriod < 0) {
+      intoPeriod += mPeriod;
+    }
+    return mPeriod - intoPeriod;
+  }
+
+  /**
+   * Counts a wakeup.
+   *
+   * @param now the current time, in UTC milliseconds
+   * @return true if this wakeup started a new hour, which makes a new
+   * {@link #getLastHourWakeups()} available
+   */
+  public boolean recordWakeup(long now) {
+    long hour = now / HOUR_IN_MILLIS;
+    boolean newHour = false;
+    if (hour != mCurrentHour) {
+      if (mCurrentHour != Long.MIN_VALUE) {
+        // An hour without any wakeup in between cost nothing
+        mLastHourWakeups = hour == mCurrentHour + 1 ? mCurrentHourWakeups : 0;
+        newHour = true;
+      }
+      mCurrentHour = hour;
+      mCurrentHourWakeups = 0;
+    }
+    mCurrentHourWakeups++;
+    return newHour;
+  }
+
+  /**
+   * @return the wakeups counted so far in the current hour
+   */
+  public int getCurrentHourWakeups() {
+    return mCurrentHourWakeups;
+  }
+
+  /**
+   * @return the wakeups counted in the last complete hour, or -1 if no hour has completed
+   */
+  public int getLastHourWakeups() {
+    return mLastHourWakeups;
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The next few days of forecast, as sent to the watch face in a single data item.
+ * <p/>
+ * The watch picks today's day and formats the temperatures itself, so it rolls over at
+ * midnight without waiting for the phone. The encoding is meant to be small rather than
+ * general:
+ * <pre>
+ * byte  version
+ * byte  flags, bit 0 set if the user prefers metric units
+ * int   Julian day of the first day
+ * byte  number of days, then for each day:
+ *   byte  days after the first day
+ *   short weather id
+ *   short high, in tenths of a degree Celsius
+ *   short low, in tenths of a degree Celsius
+ * </pre>
+ */
+public final class WatchForecast {
+
+  public static final int VERSION = 1;
+
+  private static final int FLAG_METRIC = 1;
+  private static final int TEMPERATURE_SCALE = 10;
+  // Day offsets are sent as a single unsigned byte
+  private static final int MAX_DAY_OFFSET = 0xff;
+
+  private final boolean mMetric;
+  private final int mStartJulianDay;
+  private final int[] mDayOffsets;
+  private final int[] mWeatherIds;
+  private final short[] mHighs;
+  private final short[] mLows;
+
+  private WatchForecast(boolean metric, int startJulianDay, int dayCount) {
+    mMetric = metric;
+    mStartJulianDay = startJulianDay;
+    mDayOffsets = new int[dayCount];
+    mWeatherIds = new int[dayCount];
+    mHighs = new short[dayCount];
+    mLows = new short[dayCount];
+  }
+
+  /**
+   * Collects the days to send, in date order.
+   */
+  public static final class Builder {
+    private final boolean mMetric;
+    private final int[] mJulianDays;
+    private final int[] mWeatherIds;
+    private final double[] mHighs;
+    private final double[] mLows;
+    private int mDayCount;
+
+    /**
+     * @param isMetric whether the watch should show Celsius
+     * @param maxDays  the most days that will be added
+     */
+    public Builder(boolean isMetric, int maxDays) {
+      mMetric = isMetric;
+      mJulianDays = new int[maxDays];
+      mWeatherIds = new int[maxDays];
+      mHighs = new double[maxDays];
+      mLows = new double[maxDays];
+    }
+
+    /**
+     * @param high in Celsius
+     * @param low  in Celsius
+     */
+    public Builder addDay(int julianDay, int weatherId, double high, double low) {
+      if (mDayCount > 0 && (julianDay <= mJulianDays[mDayCount - 1]
+        || julianDay - mJulianDays[0] > MAX_DAY_OFFSET)) {
+        throw new IllegalArgumentException("Day out of order: " + julianDay);
+      }
+      mJulianDays[mDayCount] = julianDay;
+      mWeatherIds[mDayCount] = weatherId;
+      mHighs[mDayCount] = high;
+      mLows[mDayCount] = low;
+      mDayCount++;
+      return this;
+    }
+
+    public WatchForecast build() {
+      int startJulianDay = mDayCount == 0 ? 0 : mJulianDays[0];
+      WatchForecast forecast = new WatchForecast(mMetric, startJulianDay, mDayCount);
+      for (int i = 0; i < mDayCount; i++) {
+        forecast.mDayOffsets[i] = mJulianDays[i] - startJulianDay;
+        forecast.mWeatherIds[i] = mWeatherIds[i];
+        forecast.mHighs[i] = toScaled(mHighs[i]);
+        forecast.mLows[i] = toScaled(mLows[i]);
+      }
+      return forecast;
+    }
+  }
+
+  /**
+   * @throws IOException if {@code payload} is truncated or from an unknown version
+   */
+  public static WatchForecast decode(byte[] payload) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported watch forecast version " + version);
+    }
+    int flags = in.readUnsignedByte();
+    int startJulianDay = in.readInt();
+    int dayCount = in.readUnsignedByte();
+    WatchForecast forecast =
+      new WatchForecast((flags & FLAG_METRIC) != 0, startJulianDay, dayCount);
+    for (int i = 0; i < dayCount; i++) {
+      forecast.mDayOffsets[i] = in.readUnsignedByte();
+      forecast.mWeatherIds[i] = in.readUnsignedShort();
+      forecast.mHighs[i] = in.readShort();
+      forecast.mLows[i] = in.readShort();
+    }
+    return forecast;
+  }
+
+  public byte[] encode() {
+    int dayCount = mDayOffsets.length;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(7 + 7 * dayCount);
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(VERSION);
+      out.writeByte(mMetric ? FLAG_METRIC : 0);
+      out.writeInt(mStartJulianDay);
+      out.writeByte(dayCount);
+      for (int i = 0; i < dayCount; i++) {
+        out.writeByte(mDayOffsets[i]);
+        out.writeShort(mWeatherIds[i]);
+        out.writeShort(mHighs[i]);
+        out.writeShort(mLows[i]);
+      }
+    } catch (IOException e) {
+      // Writing to memory doesn't fail
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public boolean isMetric() {
+    return mMetric;
+  }
+
+  public int getDayCount() {
+    return mDayOffsets.length;
+  }
+
+  /**
+   * @return the index of the day with the given Julian day, or -1 if it isn't included
+   */
+  public int indexOf(int julianDay) {
+    for (int i = 0; i < mDayOffsets.length; i++) {
+      if (mStartJulianDay + mDayOffsets[i] == julianDay) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public int getJulianDay(int index) {
+    return mStartJulianDay + mDayOffsets[index];
+  }
+
+  public int getWeatherId(int index) {
+    return mWeatherIds[index];
+  }
+
+  /**
+   * @return the high, in Celsius, to a tenth of a degree
+   */
+  public double getHigh(int index) {
+    return (double) mHighs[index] / TEMPERATURE_SCALE;
+  }
+
+  /**
+   * @return the low, in Celsius, to a tenth of a degree
+   */
+  public double getLow(int index) {
+    return (double) mLows[index] / TEMPERATURE_SCALE;
+  }
+
+  private static short toScaled(double celsius) {
+    long scaled = Math.round(celsius * TEMPERATURE_SCALE);
+    return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+  }
+}
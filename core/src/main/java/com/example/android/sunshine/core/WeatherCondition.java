@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.Locale;
+
+/**
+ * The groups of OpenWeatherMap condition codes that share the same icon and artwork.
+ * <p/>
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public enum WeatherCondition {
+  STORM("storm",
+    "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg"),
+  LIGHT_RAIN("light_rain",
+    "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg"),
+  RAIN("rain",
+    "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg"),
+  SNOW("snow",
+    "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG"),
+  FOG("fog",
+    "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg"),
+  // Tornadoes use the storm art, but get their own wallpaper.
+  TORNADO("storm",
+    "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg"),
+  CLEAR("clear",
+    "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg"),
+  LIGHT_CLOUDS("light_clouds",
+    "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg"),
+  CLOUDS("clouds",
+    "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg");
+
+  // OpenWeatherMap condition codes are all three digits, so a flat table covers them.
+  private static final int MAX_WEATHER_ID = 999;
+  private static final WeatherCondition[] sConditions = new WeatherCondition[MAX_WEATHER_ID + 1];
+
+  static {
+    for (int weatherId = 0; weatherId <= MAX_WEATHER_ID; weatherId++) {
+      sConditions[weatherId] = classify(weatherId);
+    }
+  }
+
+  private final String mArtName;
+  private final String mImageUrl;
+
+  WeatherCondition(String artName, String imageUrl) {
+    mArtName = artName;
+    mImageUrl = imageUrl;
+  }
+
+  /**
+   * @return the name of this condition's artwork, as used in art pack URLs, e.g. "light_rain"
+   */
+  public String getArtName() {
+    return mArtName;
+  }
+
+  /**
+   * @return a URL to a full size photograph for this condition
+   */
+  public String getImageUrl() {
+    return mImageUrl;
+  }
+
+  /**
+   * Expands an art pack URL format (e.g. "http://example.com/%s.png") for this condition.
+   */
+  public String getArtUrl(String artPackFormat) {
+    return String.format(Locale.US, artPackFormat, mArtName);
+  }
+
+  /**
+   * Looks up the condition for a weather id returned by the OpenWeatherMap call.
+   *
+   * @param weatherId from OpenWeatherMap API response
+   * @return the matching condition, or null if no relation is found
+   */
+  public static WeatherCondition forWeatherId(int weatherId) {
+    if (weatherId < 0 || weatherId > MAX_WEATHER_ID) {
+      return null;
+    }
+    return sConditions[weatherId];
+  }
+
+  private static WeatherCondition classify(int weatherId) {
+    if (weatherId >= 200 && weatherId <= 232) {
+      return STORM;
+    } else if (weatherId >= 300 && weatherId <= 321) {
+      return LIGHT_RAIN;
+    } else if (weatherId >= 500 && weatherId <= 504) {
+      return RAIN;
+    } else if (weatherId == 511) {
+      return SNOW;
+    } else if (weatherId >= 520 && weatherId <= 531) {
+      return RAIN;
+    } else if (weatherId >= 600 && weatherId <= 622) {
+      return SNOW;
+    } else if (weatherId >= 701 && weatherId <= 761) {
+      return FOG;
+    } else if (weatherId == 781) {
+      return TORNADO;
+    } else if (weatherId == 800) {
+      return CLEAR;
+    } else if (weatherId == 801) {
+      return LIGHT_CLOUDS;
+    } else if (weatherId >= 802 && weatherId <= 804) {
+      return CLOUDS;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ClockTextTest {
+
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+  private static final long NOW = 1419033600000L;  // December 19th, 2014, 4pm in California
+  private static final long SECOND = 1000;
+  private static final long MINUTE = 60 * SECOND;
+
+  private static ClockText createClockText() {
+    return new ClockText(Locale.US, TIME_ZONE, "%02d", "E, MMM dd yyyy", "AM", "PM");
+  }
+
+  @Test
+  public void formatsTwentyFourHourTime() {
+    ClockText clockText = createClockText();
+
+    assertTrue(clockText.update(NOW + 5 * MINUTE, true));
+    assertEquals("16", clockText.getHourText());
+    assertEquals("05", clockText.getMinuteText());
+    assertEquals("Fri, Dec 19 2014", clockText.getDateText());
+  }
+
+  @Test
+  public void formatsTwelveHourTime() {
+    ClockText clockText = createClockText();
+
+    clockText.update(NOW, false);
+    assertEquals("4", clockText.getHourText());
+    assertEquals("PM", clockText.getMeridianText());
+
+    // Midnight is 12 AM on the next day
+    clockText.update(NOW + 8 * 60 * MINUTE, false);
+    assertEquals("12", clockText.getHourText());
+    assertEquals("00", clockText.getMinuteText());
+    assertEquals("AM", clockText.getMeridianText());
+    assertEquals("Sat, Dec 20 2014", clockText.getDateText());
+  }
+
+  @Test
+  public void onlyChangesOncePerMinute() {
+    ClockText clockText = createClockText();
+    assertTrue(clockText.update(NOW, true));
+    String minute = clockText.getMinuteText();
+
+    assertFalse(clockText.update(NOW + 59 * SECOND, true));
+    assertSame(minute, clockText.getMinuteText());
+    assertTrue(clockText.update(NOW + MINUTE, true));
+    assertTrue("Error: Switching to a 12 hour clock wasn't picked up",
+      clockText.update(NOW + MINUTE, false));
+  }
+
+  @Test
+  public void followsTimeZoneChanges() {
+    ClockText clockText = createClockText();
+    clockText.update(NOW, true);
+
+    clockText.setTimeZone(TimeZone.getTimeZone("Europe/London"));
+    assertTrue(clockText.update(NOW, true));
+    assertEquals("00", clockText.getHourText());
+    assertEquals("Sat, Dec 20 2014", clockText.getDateText());
+  }
+
+  @Test
+  public void secondsAreTwoDigits() {
+    ClockText clockText = createClockText();
+
+    assertEquals("00", clockText.getSecondText(NOW));
+    assertEquals("07", clockText.getSecondText(NOW + 7 * SECOND));
+    assertEquals("59", clockText.getSecondText(NOW - SECOND));
+  }
+
+  @Test
+  public void steadyStateFramesDoNotAllocate() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+    long threadId = Thread.currentThread().getId();
+
+    ClockText clockText = createClockText();
+    // One frame a second for two hours of the same day, first to warm up, then measured
+    int frames = 2 * 60 * 60;
+    runFrames(clockText, frames);
+    // The JIT can allocate on this thread while it compiles, so keep the quietest of a few
+    // runs; an allocation in ClockText itself would show up in every one of them.
+    long allocated = Long.MAX_VALUE;
+    for (int run = 0; run < 5 && allocated > 0; run++) {
+      long before = allocations.getThreadAllocatedBytes(threadId);
+      runFrames(clockText, frames);
+      allocated = Math.min(allocated, allocations.getThreadAllocatedBytes(threadId) - before);
+    }
+
+    assertEquals("Error: Steady state frames allocated memory", 0L, allocated);
+  }
+
+  private static void runFrames(ClockText clockText, int frames) {
+    for (int frame = 0; frame < frames; frame++) {
+      clockText.update(NOW + frame * SECOND, true);
+      // Read what onDraw reads
+      clockText.getHourText().length();
+      clockText.getMinuteText().length();
+      clockText.getDateText().length();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationHistogramTest {
+
+  @Test
+  public void bucketBoundsDouble() {
+    DurationHistogram histogram = new DurationHistogram(250, 4);
+
+    assertEquals(5, histogram.getBucketCount());
+    assertEquals(250, histogram.getUpperBound(0));
+    assertEquals(2000, histogram.getUpperBound(3));
+    assertEquals(Long.MAX_VALUE, histogram.getUpperBound(4));
+  }
+
+  @Test
+  public void countsIntoBuckets() {
+    DurationHistogram histogram = new DurationHistogram(250, 4);
+    histogram.record(0);
+    histogram.record(250);
+    histogram.record(251);
+    histogram.record(1999);
+    histogram.record(1000000);
+
+    assertEquals(5, histogram.getCount());
+    assertEquals(2, histogram.getBucket(0));
+    assertEquals(1, histogram.getBucket(1));
+    assertEquals(0, histogram.getBucket(2));
+    assertEquals(1, histogram.getBucket(3));
+    assertEquals(1, histogram.getBucket(4));
+    assertEquals(1000000, histogram.getMax());
+    assertEquals((250 + 251 + 1999 + 1000000) / 5, histogram.getMean());
+  }
+
+  @Test
+  public void percentilesAreBucketBounds() {
+    DurationHistogram histogram = new DurationHistogram(1, 10);
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(1, histogram.getPercentile(0));
+    // The 50th duration is 50, which falls in the (32, 64] bucket
+    assertEquals(64, histogram.getPercentile(50));
+    // The longest duration caps the last bucket's bound
+    assertEquals(100, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void resetClearsEverything() {
+    DurationHistogram histogram = new DurationHistogram(1, 2);
+    histogram.record(5);
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getBucket(2));
+    assertEquals(0, histogram.getPercentile(90));
+    assertEquals(0, histogram.getMean());
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationStatsTest {
+
+  @Test
+  public void emptyStatsReportZero() {
+    DurationStats stats = new DurationStats(10);
+
+    assertEquals(0, stats.getCount());
+    assertEquals(0, stats.getPercentile(50));
+    assertEquals(0, stats.getMax());
+  }
+
+  @Test
+  public void nearestRankPercentiles() {
+    DurationStats stats = new DurationStats(100);
+    // Record 1..100 out of order
+    for (int i = 100; i >= 1; i--) {
+      stats.record(i);
+    }
+
+    assertEquals(1, stats.getPercentile(0));
+    assertEquals(50, stats.getPercentile(50));
+    assertEquals(90, stats.getPercentile(90));
+    assertEquals(99, stats.getPercentile(99));
+    assertEquals(100, stats.getPercentile(100));
+    assertEquals(100, stats.getMax());
+    assertEquals(10, stats.countAbove(90));
+  }
+
+  @Test
+  public void dropsSamplesOnceFull() {
+    DurationStats stats = new DurationStats(2);
+    stats.record(5);
+    stats.record(7);
+    stats.record(100);
+
+    assertEquals(2, stats.getCount());
+    assertEquals(1, stats.getDroppedCount());
+    assertEquals(7, stats.getMax());
+
+    stats.reset();
+    assertEquals(0, stats.getCount());
+    assertEquals(0, stats.getDroppedCount());
+  }
+}
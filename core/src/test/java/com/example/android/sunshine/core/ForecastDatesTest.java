@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForecastDatesTest {
+
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+
+  @Test
+  public void normalizesToLocalMidnight() {
+    Calendar calendar = Calendar.getInstance(TIME_ZONE);
+    calendar.clear();
+    calendar.set(2014, Calendar.DECEMBER, 20);
+    long midnight = calendar.getTimeInMillis();
+
+    assertEquals(midnight, ForecastDates.normalizeDate(midnight, TIME_ZONE));
+    assertEquals(midnight,
+      ForecastDates.normalizeDate(midnight + 23 * 60 * 60 * 1000L, TIME_ZONE));
+  }
+
+  @Test
+  public void normalizesAcrossDaylightSavings() {
+    Calendar calendar = Calendar.getInstance(TIME_ZONE);
+    calendar.clear();
+    // Clocks went forward at 2am on March 8th, 2015.
+    calendar.set(2015, Calendar.MARCH, 8);
+    long midnight = calendar.getTimeInMillis();
+    calendar.set(Calendar.HOUR_OF_DAY, 22);
+
+    assertEquals(midnight, ForecastDates.normalizeDate(calendar.getTimeInMillis(), TIME_ZONE));
+  }
+
+  @Test
+  public void julianDayOfEpoch() {
+    assertEquals(ForecastDates.EPOCH_JULIAN_DAY, ForecastDates.getJulianDay(0L, 0L));
+    assertEquals(ForecastDates.EPOCH_JULIAN_DAY + 1,
+      ForecastDates.getJulianDay(ForecastDates.DAY_IN_MILLIS, 0L));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForecastDeltaParserTest {
+
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+  private static final int DECEMBER_19_2014 = 2457011;
+
+  private static final String DELTA_JSON = "{\"v\":1,\"loc\":\"94043\"," +
+    "\"city\":\"Mountain View\",\"lat\":37.39,\"lon\":-122.08,\"days\":[" +
+    "[2457011,500,\"Rain\",15.1,8.2,81,1012.4,3.21,170]," +
+    "[2457013,800,\"Clear\",13.9,6.4,64,1020.1,1.5,300]]}";
+
+  @Test
+  public void parsesLocationAndDays() throws JSONException {
+    ForecastDelta delta = ForecastDeltaParser.parse(DELTA_JSON, TIME_ZONE);
+
+    assertEquals("94043", delta.getLocationSetting());
+    Forecast forecast = delta.getForecast();
+    assertEquals("Mountain View", forecast.getCityName());
+    assertEquals(37.39, forecast.getLatitude(), 0.001);
+    assertEquals(-122.08, forecast.getLongitude(), 0.001);
+
+    List<DayForecast> days = forecast.getDays();
+    assertEquals(2, days.size());
+    DayForecast first = days.get(0);
+    assertEquals(DECEMBER_19_2014, ForecastDates.getJulianDay(first.getDate(), TIME_ZONE));
+    assertEquals(first.getDate(), ForecastDates.normalizeDate(first.getDate(), TIME_ZONE));
+    assertEquals(500, first.getWeatherId());
+    assertEquals("Rain", first.getDescription());
+    assertEquals(15.1, first.getHigh(), 0.001);
+    assertEquals(8.2, first.getLow(), 0.001);
+    assertEquals(81, first.getHumidity());
+    assertEquals(1012.4, first.getPressure(), 0.001);
+    assertEquals(3.21, first.getWindSpeed(), 0.001);
+    assertEquals(170, first.getWindDirection(), 0.001);
+
+    // Unchanged days are simply left out
+    assertEquals(DECEMBER_19_2014 + 2,
+      ForecastDates.getJulianDay(days.get(1).getDate(), TIME_ZONE));
+  }
+
+  @Test(expected = JSONException.class)
+  public void rejectsUnknownVersions() throws JSONException {
+    ForecastDeltaParser.parse(DELTA_JSON.replace("\"v\":1", "\"v\":2"), TIME_ZONE);
+  }
+
+  @Test(expected = JSONException.class)
+  public void rejectsDaysOutOfOrder() throws JSONException {
+    ForecastDeltaParser.parse(DELTA_JSON.replace("[2457013", "[2457010"), TIME_ZONE);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ForecastParserTest {
+
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+  private static final long NOW = 1419033600000L;  // December 19th, 2014, 4pm in California
+
+  private static final String FORECAST_JSON = "{\"cod\":\"200\",\"message\":0.0032," +
+    "\"city\":{\"id\":5375480,\"name\":\"Mountain View\"," +
+    "\"coord\":{\"lon\":-122.08,\"lat\":37.39},\"country\":\"US\"},\"cnt\":2,\"list\":[" +
+    "{\"dt\":1419019200,\"temp\":{\"day\":14.5,\"min\":8.2,\"max\":15.1}," +
+    "\"pressure\":1012.4,\"humidity\":81," +
+    "\"weather\":[{\"id\":500,\"main\":\"Rain\",\"description\":\"light rain\"}]," +
+    "\"speed\":3.21,\"deg\":170}," +
+    "{\"dt\":1419105600,\"temp\":{\"day\":12.1,\"min\":6.4,\"max\":13.9}," +
+    "\"pressure\":1020.1,\"humidity\":64," +
+    "\"weather\":[{\"id\":800,\"main\":\"Clear\",\"description\":\"sky is clear\"}]," +
+    "\"speed\":1.5,\"deg\":300}]}";
+
+  @Test
+  public void parsesCityAndDays() throws JSONException {
+    Forecast forecast = ForecastParser.parse(FORECAST_JSON, NOW, TIME_ZONE);
+
+    assertTrue(forecast.isSuccessful());
+    assertEquals("Mountain View", forecast.getCityName());
+    assertEquals(37.39, forecast.getLatitude(), 0.001);
+    assertEquals(-122.08, forecast.getLongitude(), 0.001);
+
+    List<DayForecast> days = forecast.getDays();
+    assertEquals(2, days.size());
+
+    DayForecast today = days.get(0);
+    assertEquals(500, today.getWeatherId());
+    assertEquals("Rain", today.getDescription());
+    assertEquals(15.1, today.getHigh(), 0.001);
+    assertEquals(8.2, today.getLow(), 0.001);
+    assertEquals(81, today.getHumidity());
+    assertEquals(1012.4, today.getPressure(), 0.001);
+    assertEquals(3.21, today.getWindSpeed(), 0.001);
+    assertEquals(170, today.getWindDirection(), 0.001);
+  }
+
+  @Test
+  public void normalizesConsecutiveDays() throws JSONException {
+    List<DayForecast> days = ForecastParser.parse(FORECAST_JSON, NOW, TIME_ZONE).getDays();
+
+    assertEquals(ForecastDates.normalizeDate(NOW, TIME_ZONE), days.get(0).getDate());
+    assertEquals(ForecastDates.getJulianDay(NOW, TIME_ZONE) + 1,
+      ForecastDates.getJulianDay(days.get(1).getDate(), TIME_ZONE));
+  }
+
+  @Test
+  public void reportsServerErrors() throws JSONException {
+    Forecast forecast = ForecastParser.parse(
+      "{\"cod\":\"404\",\"message\":\"Error: Not found city\"}", NOW, TIME_ZONE);
+
+    assertFalse(forecast.isSuccessful());
+    assertEquals(HttpURLConnection.HTTP_NOT_FOUND, forecast.getMessageCode());
+    assertTrue(forecast.getDays().isEmpty());
+  }
+
+  @Test(expected = JSONException.class)
+  public void rejectsMalformedResponses() throws JSONException {
+    ForecastParser.parse("{\"cod\":\"200\",\"list\":[]}", NOW, TIME_ZONE);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static com.example.android.sunshine.core.RedrawSchedule.HOUR_IN_MILLIS;
+import static com.example.android.sunshine.core.RedrawSchedule.MINUTE_IN_MILLIS;
+import static com.example.android.sunshine.core.RedrawSchedule.SECOND_IN_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RedrawScheduleTest {
+
+  // 2014-12-20 23:00:00 UTC, the start of an hour
+  private static final long HOUR_START = 1419116400000L;
+
+  @Test
+  public void delaysUntilTheNextMinute() {
+    RedrawSchedule schedule = new RedrawSchedule(MINUTE_IN_MILLIS);
+
+    assertEquals(MINUTE_IN_MILLIS, schedule.getDelayUntilNextRedraw(HOUR_START));
+    assertEquals(1, schedule.getDelayUntilNextRedraw(HOUR_START + MINUTE_IN_MILLIS - 1));
+    assertEquals(59500, schedule.getDelayUntilNextRedraw(HOUR_START + 500));
+  }
+
+  @Test
+  public void delaysUntilTheNextSecond() {
+    RedrawSchedule schedule = new RedrawSchedule(SECOND_IN_MILLIS);
+
+    assertEquals(750, schedule.getDelayUntilNextRedraw(HOUR_START + 250));
+    assertEquals(250, schedule.getDelayUntilNextRedraw(-250));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsPeriodsThatDriftWithinAnHour() {
+    new RedrawSchedule(7 * SECOND_IN_MILLIS);
+  }
+
+  @Test
+  public void minuteScheduleWakesSixtyTimesAnHour() {
+    assertEquals(60, wakeupsForAnHour(new RedrawSchedule(MINUTE_IN_MILLIS)));
+    assertEquals(3600, wakeupsForAnHour(new RedrawSchedule(SECOND_IN_MILLIS)));
+  }
+
+  @Test
+  public void skippedHoursCountAsNoWakeups() {
+    RedrawSchedule schedule = new RedrawSchedule(MINUTE_IN_MILLIS);
+    assertFalse(schedule.recordWakeup(HOUR_START));
+    assertEquals(-1, schedule.getLastHourWakeups());
+
+    assertTrue(schedule.recordWakeup(HOUR_START + 3 * HOUR_IN_MILLIS));
+    assertEquals(0, schedule.getLastHourWakeups());
+    assertEquals(1, schedule.getCurrentHourWakeups());
+  }
+
+  // Follows the schedule from the start of an hour into the next one
+  private static int wakeupsForAnHour(RedrawSchedule schedule) {
+    long now = HOUR_START;
+    while (!schedule.recordWakeup(now)) {
+      now += schedule.getDelayUntilNextRedraw(now);
+    }
+    return schedule.getLastHourWakeups();
+  }
+}
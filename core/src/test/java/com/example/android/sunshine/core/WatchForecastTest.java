@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatchForecastTest {
+
+  private static final int TODAY = 2457012;
+
+  @Test
+  public void roundTripsToATenthOfADegree() throws IOException {
+    byte[] payload = new WatchForecast.Builder(false, 3)
+      .addDay(TODAY, 500, 15.14, -8.26)
+      .addDay(TODAY + 1, 800, 21.0, 10.0)
+      .addDay(TODAY + 3, 211, 17.5, 9.95)
+      .build()
+      .encode();
+    WatchForecast forecast = WatchForecast.decode(payload);
+
+    assertFalse(forecast.isMetric());
+    assertEquals(3, forecast.getDayCount());
+    assertEquals(TODAY + 3, forecast.getJulianDay(2));
+    assertEquals(500, forecast.getWeatherId(0));
+    assertEquals(15.1, forecast.getHigh(0), 0);
+    assertEquals(-8.3, forecast.getLow(0), 0);
+    assertEquals(10.0, forecast.getLow(2), 0);
+  }
+
+  @Test
+  public void findsDaysByJulianDay() throws IOException {
+    WatchForecast forecast = WatchForecast.decode(new WatchForecast.Builder(true, 2)
+      .addDay(TODAY, 500, 15, 8)
+      .addDay(TODAY + 2, 800, 21, 10)
+      .build()
+      .encode());
+
+    assertTrue(forecast.isMetric());
+    assertEquals(0, forecast.indexOf(TODAY));
+    assertEquals(-1, forecast.indexOf(TODAY + 1));
+    assertEquals(1, forecast.indexOf(TODAY + 2));
+    assertEquals(-1, forecast.indexOf(TODAY - 1));
+  }
+
+  @Test
+  public void fiveDaysFitInFortyTwoBytes() {
+    WatchForecast.Builder builder = new WatchForecast.Builder(true, 5);
+    for (int i = 0; i < 5; i++) {
+      builder.addDay(TODAY + i, 800, 20, 10);
+    }
+    assertEquals(7 + 5 * 7, builder.build().encode().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsDaysOutOfOrder() {
+    new WatchForecast.Builder(true, 2)
+      .addDay(TODAY, 500, 15, 8)
+      .addDay(TODAY, 800, 21, 10);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsUnknownVersions() throws IOException {
+    byte[] payload = new WatchForecast.Builder(true, 0).build().encode();
+    payload[0] = WatchForecast.VERSION + 1;
+    WatchForecast.decode(payload);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsTruncatedPayloads() throws IOException {
+    byte[] payload = new WatchForecast.Builder(true, 1)
+      .addDay(TODAY, 500, 15, 8)
+      .build()
+      .encode();
+    byte[] truncated = new byte[payload.length - 1];
+    System.arraycopy(payload, 0, truncated, 0, truncated.length);
+    WatchForecast.decode(truncated);
+  }
+}
@@ -28,7 +28,6 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
@@ -36,12 +35,18 @@ import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.text.format.DateFormat;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
+import com.example.android.sunshine.core.ClockText;
+import com.example.android.sunshine.core.ForecastDates;
+import com.example.android.sunshine.core.ForecastFormatter;
+import com.example.android.sunshine.core.RedrawSchedule;
+import com.example.android.sunshine.core.WatchForecast;
+import com.example.android.sunshine.core.WeatherCondition;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.wearable.Asset;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
@@ -50,18 +55,19 @@ import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.Wearable;
 
-import java.io.InputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
 
 /**
- * Digital watch face with seconds. In ambient mode, the seconds aren't
- * displayed. On devices with low-bit ambient mode, the text is drawn without
+ * Digital watch face. Seconds are optional (see {@code R.bool.show_seconds}) and are never
+ * displayed in ambient mode. On devices with low-bit ambient mode, the text is drawn without
  * anti-aliasing in ambient mode.
  */
 public class SunshineWatchFace extends CanvasWatchFaceService {
@@ -74,26 +80,57 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
   private static final Typeface BOLD_TYPEFACE =
     Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD);
 
-  /**
-   * Update rate in milliseconds for interactive mode. We update once a second
-   * since seconds are displayed in interactive mode.
-   */
-  private static final long INTERACTIVE_UPDATE_RATE_MS
-    = TimeUnit.SECONDS.toMillis(1);
-
   /**
    * Handler message id for updating the time periodically in interactive mode.
    */
   private static final int MSG_UPDATE_TIME = 0;
 
+  private static final String DUMP_ARG_RESET = "reset";
+  private static final String DUMP_ARG_OVERLAY = "overlay";
+
   private int mWidth;
   private float mCenterX;
 
+  // The live engines, including previews, for dumpsys
+  private final List<Engine> mEngines = new ArrayList<>();
+
   @Override
   public Engine onCreateEngine() {
     return new Engine();
   }
 
+  /**
+   * Prints each engine's {@link WatchFaceMetrics}. Run with
+   * {@code adb shell dumpsys activity service com.example.android.sunshine.app/.SunshineWatchFace},
+   * adding {@code reset} to start counting again or {@code overlay} to toggle the debug overlay.
+   */
+  @Override
+  protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+    super.dump(fd, writer, args);
+    boolean reset = Arrays.asList(args).contains(DUMP_ARG_RESET);
+    boolean toggleOverlay = Arrays.asList(args).contains(DUMP_ARG_OVERLAY);
+    synchronized (mEngines) {
+      for (final Engine engine : mEngines) {
+        writer.println("SunshineWatchFace engine "
+          + Integer.toHexString(System.identityHashCode(engine))
+          + (engine.isPreview() ? " (preview)" : ""));
+        engine.mMetrics.dump("  ", writer);
+        if (reset) {
+          engine.mMetrics.reset();
+          writer.println("  Reset");
+        }
+        if (toggleOverlay) {
+          engine.mUpdateTimeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+              engine.toggleDebugOverlay();
+            }
+          });
+        }
+      }
+    }
+  }
+
   private static class EngineHandler extends Handler {
     private final WeakReference<SunshineWatchFace.Engine> mWeakReference;
 
@@ -118,6 +155,12 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
     GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
     private static final String COLON_STRING = ":";
+    private static final String SECONDS_WIDTH_STRING = "00";
+    private static final String BUNDLED_ICON_PREFIX = "res:";
+    // Enough for every condition, in both the bundled and an art pack's version
+    private static final int ICON_CACHE_SIZE = 2 * WeatherCondition.values().length;
+    private static final int NO_DAY = -1;
+    private static final int DEBUG_LINE_COUNT = 3;
     private static final float DIVIDER_MULTIPLIER = .4f;
 
     final Handler mUpdateTimeHandler = new EngineHandler(this);
@@ -135,29 +178,87 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
     Paint mLowTempPaint;
     Paint mIconPaint;
 
-    Calendar mCalendar;
-    SimpleDateFormat mFormat;
+    ClockText mClockText;
+    boolean mIs24Hour;
+
+    /**
+     * When the face redraws in interactive mode: at the start of every minute, or every
+     * second if seconds are shown. Ambient mode relies on {@link #onTimeTick()} instead.
+     */
+    RedrawSchedule mRedrawSchedule;
+    boolean mShowSeconds;
+
+    final WatchFaceMetrics mMetrics = new WatchFaceMetrics();
+    boolean mShowDebugOverlay;
+    Paint mDebugPaint;
+    float mDebugLineHeight;
+    final String[] mDebugLines = new String[DEBUG_LINE_COUNT];
 
     final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
       @Override
       public void onReceive(Context context, Intent intent) {
-        mCalendar.setTimeZone(TimeZone.getDefault());
+        // Also sent when the user switches between 12 and 24 hour time
+        updateTimeSettings();
         invalidate();
       }
     };
 
+    // Layout metrics, resolved up front rather than on every frame
     float mTimeOffsetX;
     float mTimeOffsetY;
     float mDateOffsetX;
     float mTempOffsetX;
+    float mMarginRight;
+    float mTimeMarginBottom;
+    float mDateMarginBottom;
+    float mDividerMarginBottom;
+    float mIconMarginVertical;
+
+    // Text widths, measured again only when the text or the paints change
+    boolean mTextWidthsValid;
+    float mHourWidth;
+    float mColonWidth;
+    float mMinuteWidth;
+    float mSecondWidth;
+
+    /**
+     * Everything below the time (background, date, divider, icon and temperatures) only
+     * changes with the weather, the date or the display mode, so it is drawn once into this
+     * bitmap and copied onto each frame.
+     */
+    Bitmap mStaticLayer;
+    Canvas mStaticCanvas;
+    boolean mStaticLayerValid;
+    String mStaticLayerDate;
 
     GoogleApiClient mGoogleApiClient;
+    // The days sent by the phone, and the art pack icon of each if it sent any
+    WatchForecast mForecast;
+    String[] mIconHashes;
+    String mTemperatureFormat;
+    // The Julian day the weather below is for, NO_DAY if it needs to be picked again
+    int mWeatherDay = NO_DAY;
     int mWeatherId;
     String mHighTemp;
     String mLowTemp;
     Bitmap mWeatherIcon;
-    String mAmString;
-    String mPmString;
+
+    /**
+     * Icons scaled to {@link #mIconSize}, keyed by the hash of icons sent by the phone, or by
+     * {@link #BUNDLED_ICON_PREFIX} and the resource id for the ones shipped with the face.
+     */
+    final LruCache<String, Bitmap> mIconCache = new LruCache<String, Bitmap>(ICON_CACHE_SIZE) {
+      @Override
+      protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                  Bitmap newValue) {
+        // Loaded icons are mutable, so one that isn't shown can hold the next one
+        if (oldValue != mWeatherIcon && !key.startsWith(BUNDLED_ICON_PREFIX)) {
+          mIconLoader.reuse(oldValue);
+        }
+      }
+    };
+    WatchIconLoader mIconLoader;
+    int mIconSize;
 
     /**
      * Whether the display supports fewer bits for each color in ambient mode. When true, we
@@ -191,10 +292,28 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       mDateTextPaint = createTextPaint(resources.getColor(R.color.primary_light));
 
       mTimeOffsetY = resources.getDimension(R.dimen.y_offset);
-
-      mCalendar = Calendar.getInstance();
-      mFormat
-        = new SimpleDateFormat(resources.getString(R.string.date_format), Locale.getDefault());
+      mMarginRight = resources.getDimension(R.dimen.margin_right);
+      mTimeMarginBottom = resources.getDimension(R.dimen.time_margin_bottom);
+      mDateMarginBottom = resources.getDimension(R.dimen.date_margin_bottom);
+      mDividerMarginBottom = resources.getDimension(R.dimen.divider_margin_bottom);
+      mIconMarginVertical = resources.getDimension(R.dimen.icon_margin_vertical);
+      mIconSize = resources.getDimensionPixelSize(R.dimen.icon_size);
+      mTemperatureFormat = resources.getString(R.string.format_temperature);
+
+      mClockText = new ClockText(Locale.getDefault(), TimeZone.getDefault(),
+        resources.getString(R.string.time_format), resources.getString(R.string.date_format),
+        resources.getString(R.string.am), resources.getString(R.string.pm));
+      mIs24Hour = DateFormat.is24HourFormat(SunshineWatchFace.this);
+
+      mShowSeconds = resources.getBoolean(R.bool.show_seconds);
+      mRedrawSchedule = new RedrawSchedule(mShowSeconds
+        ? RedrawSchedule.SECOND_IN_MILLIS : RedrawSchedule.MINUTE_IN_MILLIS);
+
+      mShowDebugOverlay = resources.getBoolean(R.bool.show_debug_overlay);
+      mDebugPaint = createTextPaint(resources.getColor(R.color.text));
+      mDebugPaint.setTextAlign(Paint.Align.CENTER);
+      mDebugPaint.setTextSize(resources.getDimension(R.dimen.debug_text_size));
+      mDebugLineHeight = mDebugPaint.getFontSpacing();
 
       mGoogleApiClient = new GoogleApiClient.Builder(SunshineWatchFace.this)
         .addApi(Wearable.API)
@@ -202,16 +321,33 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         .addOnConnectionFailedListener(this)
         .build();
 
-      mAmString = resources.getString(R.string.am);
-      mPmString = resources.getString(R.string.pm);
+      mIconLoader = new WatchIconLoader(mGoogleApiClient, mIconSize,
+        new WatchIconLoader.Callback() {
+          @Override
+          public void onIconLoaded(String iconHash, Bitmap icon) {
+            mIconCache.put(iconHash, icon);
+            mWeatherIcon = icon;
+            mStaticLayerValid = false;
+            invalidate();
+          }
+        }, mMetrics);
 
       mGoogleApiClient.connect();
+
+      synchronized (mEngines) {
+        mEngines.add(this);
+      }
     }
 
     @Override
     public void onDestroy() {
       Log.d(LOG_TAG, "onDestroy");
+      synchronized (mEngines) {
+        mEngines.remove(this);
+      }
       mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+      releaseStaticLayer();
+      mIconLoader.quit();
       super.onDestroy();
       Wearable.DataApi.removeListener(mGoogleApiClient, this);
       mGoogleApiClient.disconnect();
@@ -234,7 +370,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         registerReceiver();
 
         // Update time zone in case it changed while we weren't visible.
-        mCalendar.setTimeZone(TimeZone.getDefault());
+        updateTimeSettings();
 
       } else {
         unregisterReceiver();
@@ -252,6 +388,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       }
       mRegisteredTimeZoneReceiver = true;
       IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+      filter.addAction(Intent.ACTION_TIME_CHANGED);
       SunshineWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
     }
 
@@ -263,6 +400,11 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       SunshineWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
     }
 
+    private void updateTimeSettings() {
+      mClockText.setTimeZone(TimeZone.getDefault());
+      mIs24Hour = DateFormat.is24HourFormat(SunshineWatchFace.this);
+    }
+
     @Override
     public void onApplyWindowInsets(WindowInsets insets) {
       super.onApplyWindowInsets(insets);
@@ -304,6 +446,8 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       mDateTextPaint.setTextSize(dateTextSize);
       mHighTempPaint.setTextSize(tempTextSize);
       mLowTempPaint.setTextSize(tempTextSize);
+      mTextWidthsValid = false;
+      mStaticLayerValid = false;
     }
 
     @Override
@@ -314,11 +458,14 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       boolean burnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
       mHourPaint.setTypeface(burnInProtection ? NORMAL_TYPEFACE : BOLD_TYPEFACE);
       mHighTempPaint.setTypeface(burnInProtection ? NORMAL_TYPEFACE : BOLD_TYPEFACE);
+      mTextWidthsValid = false;
+      mStaticLayerValid = false;
     }
 
     @Override
     public void onTimeTick() {
       super.onTimeTick();
+      recordWakeup(System.currentTimeMillis());
       invalidate();
     }
 
@@ -341,6 +488,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         mLowTempPaint.setColor(resources.getColor(R.color.primary_light));
         mAmPmPaint.setColor(resources.getColor(R.color.primary_light));
       }
+      mStaticLayerValid = false;
 
       if (mAmbient != inAmbientMode) {
         mAmbient = inAmbientMode;
@@ -368,88 +516,145 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
 
       mWidth = width;
       mCenterX = mWidth / 2f;
+
+      if (mStaticLayer == null
+        || mStaticLayer.getWidth() != width || mStaticLayer.getHeight() != height) {
+        releaseStaticLayer();
+        mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mStaticCanvas = new Canvas(mStaticLayer);
+      }
+      mStaticLayerValid = false;
+    }
+
+    private void releaseStaticLayer() {
+      if (mStaticLayer != null) {
+        mStaticLayer.recycle();
+        mStaticLayer = null;
+        mStaticCanvas = null;
+      }
     }
 
     @Override
     public void onDraw(Canvas canvas, Rect bounds) {
-
+      long frameStart = System.nanoTime();
+      // Everything used below is resolved ahead of time, and the strings only change once a
+      // minute, so a frame doesn't allocate.
       long now = System.currentTimeMillis();
-      mCalendar.setTimeInMillis(now);
-      Resources resources = SunshineWatchFace.this.getResources();
-      boolean is24Hour = DateFormat.is24HourFormat(SunshineWatchFace.this);
+      boolean timeChanged = mClockText.update(now, mIs24Hour);
+      if (timeChanged || !mTextWidthsValid) {
+        measureText();
+      }
 
-      // Draw the background.
-      if (isInAmbientMode()) {
-        canvas.drawColor(Color.BLACK);
-      } else {
-        canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
+      // ClockText only formats a new date string when the day changes
+      if (!mStaticLayerValid || mStaticLayerDate != mClockText.getDateText()) {
+        drawStaticLayer(now);
       }
+      canvas.drawBitmap(mStaticLayer, 0, 0, null);
 
       float x = mTimeOffsetX;
       float y = mTimeOffsetY;
-      String hourString;
-      String timeFormat = resources.getString(R.string.time_format);
-      if (is24Hour) {
-        hourString
-          = String.format(Locale.getDefault(), timeFormat, mCalendar.get(Calendar.HOUR_OF_DAY));
-      } else {
-        int hour = mCalendar.get(Calendar.HOUR);
-        if (hour == 0) {
-          hour = 12;
-        }
-        hourString = String.valueOf(hour);
-      }
-
-      canvas.drawText(hourString, x, y, mHourPaint);
-      x += mHourPaint.measureText(hourString);
+      canvas.drawText(mClockText.getHourText(), x, y, mHourPaint);
+      x += mHourWidth;
 
       // Draw the colon between hour and minute).
       canvas.drawText(COLON_STRING, x, y, mColonPaint);
-      x += mColonPaint.measureText(COLON_STRING);
+      x += mColonWidth;
 
       // Minute
-      String minute
-        = String.format(Locale.getDefault(), timeFormat, mCalendar.get(Calendar.MINUTE));
-      canvas.drawText(minute, x, y, mMinutePaint);
-      x += mMinutePaint.measureText(minute);
+      canvas.drawText(mClockText.getMinuteText(), x, y, mMinutePaint);
+      x += mMinuteWidth;
+
+      if (mShowSeconds && !isInAmbientMode()) {
+        canvas.drawText(mClockText.getSecondText(now), x + mMarginRight, y, mAmPmPaint);
+        x += mMarginRight + mSecondWidth;
+      }
 
-      float marginRight = resources.getDimension(R.dimen.margin_right);
       // if we are in 12 hour mode, display meridian
-      if (!is24Hour) {
-        String meridian = mCalendar.get(Calendar.AM_PM) == Calendar.AM ? mAmString : mPmString;
-        canvas.drawText(meridian, x + marginRight, y, mAmPmPaint);
+      if (!mIs24Hour) {
+        canvas.drawText(mClockText.getMeridianText(), x + mMarginRight, y, mAmPmPaint);
+      }
+
+      boolean ambient = isInAmbientMode();
+      mMetrics.onFrame(ambient, System.nanoTime() - frameStart);
+
+      // Not part of the frame time; it formats its text, so only once a minute
+      if (mShowDebugOverlay && !ambient) {
+        if (timeChanged || mDebugLines[0] == null) {
+          mMetrics.formatOverlay(mDebugLines);
+        }
+        float lineY = bounds.height() - mDebugLineHeight * DEBUG_LINE_COUNT;
+        for (String line : mDebugLines) {
+          canvas.drawText(line, mCenterX, lineY, mDebugPaint);
+          lineY += mDebugLineHeight;
+        }
+      }
+    }
+
+    void toggleDebugOverlay() {
+      mShowDebugOverlay = !mShowDebugOverlay;
+      mDebugLines[0] = null;
+      invalidate();
+    }
+
+    private void measureText() {
+      mHourWidth = mHourPaint.measureText(mClockText.getHourText());
+      mColonWidth = mColonPaint.measureText(COLON_STRING);
+      mMinuteWidth = mMinutePaint.measureText(mClockText.getMinuteText());
+      // Measured once for every second, so the meridian doesn't shift as the digits change
+      mSecondWidth = mAmPmPaint.measureText(SECONDS_WIDTH_STRING);
+      mTextWidthsValid = true;
+    }
+
+    /**
+     * Redraws {@link #mStaticLayer}: the background and everything below the time.
+     */
+    private void drawStaticLayer(long now) {
+      // This also runs when the date changes, which is when tomorrow's weather takes over
+      int julianDay = ForecastDates.getJulianDay(now, TimeZone.getDefault());
+      if (julianDay != mWeatherDay) {
+        showWeatherFor(julianDay);
+      }
+
+      Canvas canvas = mStaticCanvas;
+
+      // Draw the background.
+      if (isInAmbientMode()) {
+        canvas.drawColor(Color.BLACK);
+      } else {
+        canvas.drawRect(0, 0, mStaticLayer.getWidth(), mStaticLayer.getHeight(),
+          mBackgroundPaint);
       }
 
       // Date
-      String dateText = mFormat.format(new Date());
-      y += resources.getDimension(R.dimen.time_margin_bottom);
-      canvas.drawText(dateText, mDateOffsetX, y, mDateTextPaint);
+      float y = mTimeOffsetY + mTimeMarginBottom;
+      canvas.drawText(mClockText.getDateText(), mDateOffsetX, y, mDateTextPaint);
 
       if (mHighTemp != null && mLowTemp != null) {
 
         float lineLength = (mWidth * DIVIDER_MULTIPLIER) / 2;
-        y += resources.getDimension(R.dimen.date_margin_bottom);
+        y += mDateMarginBottom;
         canvas.drawLine(mCenterX - lineLength, y, mCenterX + lineLength, y, mDividerPaint);
 
-        y += resources.getDimension(R.dimen.divider_margin_bottom);
+        y += mDividerMarginBottom;
 
 
         if (mWeatherIcon != null && !isInAmbientMode()) {
-          float iconMargin = resources.getDimension(R.dimen.icon_margin_vertical);
-          canvas.drawBitmap(mWeatherIcon, mTempOffsetX, y - iconMargin, mIconPaint);
+          canvas.drawBitmap(mWeatherIcon, mTempOffsetX, y - mIconMarginVertical, mIconPaint);
         }
 
         float tempX = mCenterX;
-        float highTempWidth = mHighTempPaint.measureText(mHighTemp);
-        float textPadding =  highTempWidth / 2;
+        float textPadding =  mHighTempPaint.measureText(mHighTemp) / 2;
         if (mAmbient) {
           tempX -= textPadding;
         }
         canvas.drawText(mHighTemp, tempX - textPadding, y, mHighTempPaint);
-        canvas.drawText(mLowTemp, tempX + textPadding + marginRight, y, mLowTempPaint);
+        canvas.drawText(mLowTemp, tempX + textPadding + mMarginRight, y, mLowTempPaint);
 
       }
 
+      mStaticLayerDate = mClockText.getDateText();
+      mStaticLayerValid = true;
+      mMetrics.onStaticLayerDrawn();
     }
 
     /**
@@ -472,18 +677,28 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
     }
 
     /**
-     * Handle updating the time periodically in interactive mode.
+     * Handle updating the time periodically in interactive mode. Data and time zone changes
+     * redraw on their own, so this only needs to wake up when the displayed time changes.
      */
     private void handleUpdateTimeMessage() {
+      long timeMs = System.currentTimeMillis();
+      recordWakeup(timeMs);
       invalidate();
       if (shouldTimerBeRunning()) {
-        long timeMs = System.currentTimeMillis();
-        long delayMs = INTERACTIVE_UPDATE_RATE_MS
-          - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+        long delayMs = mRedrawSchedule.getDelayUntilNextRedraw(timeMs);
         mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
       }
     }
 
+    private void recordWakeup(long now) {
+      mMetrics.onWakeup(isInAmbientMode());
+      if (mRedrawSchedule.recordWakeup(now)) {
+        mMetrics.onHourCompleted(mRedrawSchedule.getLastHourWakeups());
+        Log.d(LOG_TAG, "Wakeups in the last hour: " + mRedrawSchedule.getLastHourWakeups()
+          + (mShowSeconds ? " (showing seconds)" : ""));
+      }
+    }
+
     /**
      * GoogleApiClient.ConnectionCallbacks
      *
@@ -493,6 +708,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
     public void onConnected(Bundle connectionHint) {
       Log.d(LOG_TAG, "Connected to Google Play API");
       Wearable.DataApi.addListener(mGoogleApiClient, this);
+      mIconLoader.onConnected();
     }
 
     /**
@@ -525,11 +741,10 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
       Log.d(LOG_TAG, "onDataChanged");
 
       final String TOPIC = "/sunshine-weather";
-      final String WEATHER_ID_KEY = "weatherId";
-      final String HIGH_TEMP_KEY = "highTemp";
-      final String LOW_TEMP_KEY = "lowTemp";
-      final String WEATHER_ICON = "weatherIcon";
+      final String FORECAST_KEY = "forecast";
+      final String ICON_HASHES_KEY = "iconHashes";
 
+      int forecasts = 0;
       for (DataEvent event : dataEvents) {
         if (event.getType() == DataEvent.TYPE_CHANGED) {
           // DataItem changed
@@ -537,55 +752,96 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
           if (item.getUri().getPath().compareTo(TOPIC) == 0) {
 
             DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
-            mWeatherId = dataMap.getInt(WEATHER_ID_KEY);
-            mHighTemp = dataMap.getString(HIGH_TEMP_KEY);
-            mLowTemp = dataMap.getString(LOW_TEMP_KEY);
-            DownloadBitmapTask task = new DownloadBitmapTask();
-            task.execute(dataMap.getAsset(WEATHER_ICON));
-            Log.d(
-              LOG_TAG,
-              String.format("Data item changed: high: %s low: %s", mHighTemp, mLowTemp)
-            );
+            byte[] forecast = dataMap.getByteArray(FORECAST_KEY);
+            if (forecast == null) {
+              // Sent by a phone app from before forecasts were sent as a whole
+              continue;
+            }
+            try {
+              mForecast = WatchForecast.decode(forecast);
+            } catch (IOException e) {
+              Log.e(LOG_TAG, "Couldn't read the forecast", e);
+              continue;
+            }
+            mIconHashes = dataMap.getStringArray(ICON_HASHES_KEY);
+            forecasts++;
+            mWeatherDay = NO_DAY;
+            mStaticLayerValid = false;
+            invalidate();
+            Log.d(LOG_TAG, "Data item changed: " + mForecast.getDayCount() + " days");
           }
         }
       }
+      mMetrics.onDataChanged(forecasts);
     }
 
-    private class DownloadBitmapTask extends AsyncTask<Asset, Void, Bitmap> {
+    /**
+     * Picks the weather for a day out of {@link #mForecast}, and formats it.
+     */
+    private void showWeatherFor(int julianDay) {
+      mWeatherDay = julianDay;
+      int index = mForecast == null ? -1 : mForecast.indexOf(julianDay);
+      if (index == -1) {
+        // Better to show nothing than another day's weather
+        mHighTemp = null;
+        mLowTemp = null;
+        mWeatherIcon = null;
+        mIconLoader.cancel();
+        return;
+      }
+      mWeatherId = mForecast.getWeatherId(index);
+      mHighTemp = formatTemperature(mForecast.getHigh(index));
+      mLowTemp = formatTemperature(mForecast.getLow(index));
 
-      @Override
-      protected Bitmap doInBackground(Asset... params) {
-        return loadBitmapFromAsset(params[0]);
+      String iconHash = null;
+      if (mIconHashes != null && index < mIconHashes.length && !mIconHashes[index].isEmpty()) {
+        iconHash = mIconHashes[index];
       }
+      showIcon(mWeatherId, iconHash);
+    }
 
-      @Override
-      protected void onPostExecute(Bitmap bitmap) {
+    private String formatTemperature(double celsius) {
+      // For presentation, assume the user doesn't care about tenths of a degree.
+      return String.format(mTemperatureFormat,
+        ForecastFormatter.toDisplayUnits(celsius, mForecast.isMetric()));
+    }
 
-        int iconSize = (int) SunshineWatchFace.this.getResources().getDimension(R.dimen.icon_size);
-        mWeatherIcon = Bitmap.createScaledBitmap(bitmap, iconSize, iconSize, false);
+    /**
+     * Shows the icon for a condition: the phone's art pack icon if it sent one and it's been
+     * loaded, and the bundled art otherwise. A missing art pack icon is loaded in the
+     * background and replaces the bundled art once it's ready.
+     *
+     * @param iconHash the hash of the art pack icon, or null for the bundled art
+     */
+    private void showIcon(int weatherId, String iconHash) {
+      Bitmap icon = iconHash == null ? null : mIconCache.get(iconHash);
+      if (icon != null) {
+        mIconLoader.cancel();
+      } else {
+        icon = getBundledIcon(weatherId);
+        if (iconHash != null) {
+          mIconLoader.load(iconHash);
+        } else {
+          mIconLoader.cancel();
+        }
       }
+      mWeatherIcon = icon;
+    }
 
-      public Bitmap loadBitmapFromAsset(Asset asset) {
-        if (asset == null) {
-          throw new IllegalArgumentException("Asset must be non-null");
-        }
-        ConnectionResult result =
-          mGoogleApiClient.blockingConnect(500, TimeUnit.MILLISECONDS);
-        if (!result.isSuccess()) {
-          return null;
-        }
-        // convert asset into a file descriptor and block until it's ready
-        InputStream assetInputStream = Wearable.DataApi.getFdForAsset(
-          mGoogleApiClient, asset).await().getInputStream();
-        mGoogleApiClient.disconnect();
-
-        if (assetInputStream == null) {
-          Log.w(LOG_TAG, "Requested an unknown Asset.");
-          return null;
-        }
-        // decode the stream into a bitmap
-        return BitmapFactory.decodeStream(assetInputStream);
+    private Bitmap getBundledIcon(int weatherId) {
+      int artResourceId = WeatherIcons.getArtResource(weatherId);
+      if (artResourceId == -1) {
+        return null;
+      }
+      String key = BUNDLED_ICON_PREFIX + artResourceId;
+      Bitmap icon = mIconCache.get(key);
+      if (icon == null) {
+        Bitmap art = BitmapFactory.decodeResource(SunshineWatchFace.this.getResources(),
+          artResourceId);
+        icon = Bitmap.createScaledBitmap(art, mIconSize, mIconSize, true);
+        mIconCache.put(key, icon);
       }
+      return icon;
     }
   }
 }
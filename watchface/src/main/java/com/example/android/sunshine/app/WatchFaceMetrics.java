@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.os.SystemClock;
+
+import com.example.android.sunshine.core.DurationHistogram;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts what a watch face engine spends its battery on: how long frames take, how often it
+ * draws and wakes up in each mode, and the data layer traffic behind it.
+ * <p/>
+ * Printed by {@code adb shell dumpsys activity service
+ * com.example.android.sunshine.app/.SunshineWatchFace}, and optionally drawn over the face.
+ * The engine records on the main thread while dumpsys reads on a binder thread, hence the
+ * locking; recording itself doesn't allocate.
+ */
+class WatchFaceMetrics {
+
+  // Frame times in microseconds, from 250us up to 128ms and beyond
+  private final DurationHistogram mFrameTimes = new DurationHistogram(250, 10);
+  // Icon loads in milliseconds, from 16ms up to 8s and beyond
+  private final DurationHistogram mIconLoadTimes = new DurationHistogram(16, 10);
+
+  private long mSince;
+  private long mInteractiveFrames;
+  private long mAmbientFrames;
+  private long mStaticLayerDraws;
+  private long mInteractiveWakeups;
+  private long mAmbientWakeups;
+  private int mLastHourWakeups;
+  private long mDataEvents;
+  private long mForecasts;
+  private long mIconLoadsRequested;
+  private long mIconLoadsFailed;
+  private long mIconLoadsSuperseded;
+
+  WatchFaceMetrics() {
+    reset();
+  }
+
+  synchronized void reset() {
+    mFrameTimes.reset();
+    mIconLoadTimes.reset();
+    mSince = SystemClock.elapsedRealtime();
+    mInteractiveFrames = 0;
+    mAmbientFrames = 0;
+    mStaticLayerDraws = 0;
+    mInteractiveWakeups = 0;
+    mAmbientWakeups = 0;
+    mLastHourWakeups = -1;
+    mDataEvents = 0;
+    mForecasts = 0;
+    mIconLoadsRequested = 0;
+    mIconLoadsFailed = 0;
+    mIconLoadsSuperseded = 0;
+  }
+
+  synchronized void onFrame(boolean ambient, long durationNanos) {
+    mFrameTimes.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    if (ambient) {
+      mAmbientFrames++;
+    } else {
+      mInteractiveFrames++;
+    }
+  }
+
+  synchronized void onStaticLayerDrawn() {
+    mStaticLayerDraws++;
+  }
+
+  synchronized void onWakeup(boolean ambient) {
+    if (ambient) {
+      mAmbientWakeups++;
+    } else {
+      mInteractiveWakeups++;
+    }
+  }
+
+  synchronized void onHourCompleted(int wakeups) {
+    mLastHourWakeups = wakeups;
+  }
+
+  /**
+   * @param forecasts how many of the changed items were forecasts
+   */
+  synchronized void onDataChanged(int forecasts) {
+    mDataEvents++;
+    mForecasts += forecasts;
+  }
+
+  synchronized void onIconLoadRequested() {
+    mIconLoadsRequested++;
+  }
+
+  synchronized void onIconLoaded(long millis) {
+    mIconLoadTimes.record(millis);
+  }
+
+  synchronized void onIconLoadFailed() {
+    mIconLoadsFailed++;
+  }
+
+  synchronized void onIconLoadSuperseded() {
+    mIconLoadsSuperseded++;
+  }
+
+  /**
+   * Fills in the lines of the debug overlay. Formats strings, so call it when the overlay
+   * changes rather than on every frame.
+   */
+  synchronized void formatOverlay(String[] lines) {
+    lines[0] = String.format(Locale.US, "frame p50 %.1f p90 %.1f max %.1f ms",
+      mFrameTimes.getPercentile(50) / 1000f, mFrameTimes.getPercentile(90) / 1000f,
+      mFrameTimes.getMax() / 1000f);
+    lines[1] = String.format(Locale.US, "draws %d/%d wakeups %d/%d",
+      mInteractiveFrames, mAmbientFrames, mInteractiveWakeups, mAmbientWakeups);
+    lines[2] = String.format(Locale.US, "last hour %d data %d icons %d/%d",
+      mLastHourWakeups, mDataEvents, mIconLoadTimes.getCount(), mIconLoadsRequested);
+  }
+
+  synchronized void dump(String prefix, PrintWriter out) {
+    long elapsed = SystemClock.elapsedRealtime() - mSince;
+    out.print(prefix);
+    out.println("Since " + TimeUnit.MILLISECONDS.toSeconds(elapsed) + "s ago");
+
+    out.print(prefix);
+    out.println("Frames: " + mInteractiveFrames + " interactive, " + mAmbientFrames
+      + " ambient, static layer drawn " + mStaticLayerDraws + " times");
+    dumpHistogram(prefix + "  ", "us", mFrameTimes, out);
+
+    out.print(prefix);
+    out.println("Wakeups: " + mInteractiveWakeups + " interactive, " + mAmbientWakeups
+      + " ambient, " + (mLastHourWakeups == -1 ? "no complete hour yet"
+      : mLastHourWakeups + " in the last complete hour"));
+
+    out.print(prefix);
+    out.println("Data layer: " + mDataEvents + " events, " + mForecasts + " forecasts");
+
+    out.print(prefix);
+    out.println("Icon loads: " + mIconLoadsRequested + " requested, "
+      + mIconLoadTimes.getCount() + " loaded, " + mIconLoadsFailed + " failed, "
+      + mIconLoadsSuperseded + " superseded");
+    dumpHistogram(prefix + "  ", "ms", mIconLoadTimes, out);
+  }
+
+  private static void dumpHistogram(String prefix, String unit, DurationHistogram histogram,
+                                    PrintWriter out) {
+    if (histogram.getCount() == 0) {
+      return;
+    }
+    out.print(prefix);
+    out.println("mean " + histogram.getMean() + unit
+      + " p50 " + histogram.getPercentile(50) + unit
+      + " p90 " + histogram.getPercentile(90) + unit
+      + " p99 " + histogram.getPercentile(99) + unit
+      + " max " + histogram.getMax() + unit);
+    for (int bucket = 0; bucket < histogram.getBucketCount(); bucket++) {
+      long count = histogram.getBucket(bucket);
+      if (count == 0) {
+        continue;
+      }
+      long upperBound = histogram.getUpperBound(bucket);
+      out.print(prefix);
+      out.println((upperBound == Long.MAX_VALUE ? "  more" : "<= " + upperBound + unit)
+        + ": " + count);
+    }
+  }
+}
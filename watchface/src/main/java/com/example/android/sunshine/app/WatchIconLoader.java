@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the art pack icons the phone puts in the data layer, one at a time, on its own
+ * thread.
+ * <p/>
+ * Only the icon asked for last is wanted: asking for another one drops a load that hasn't
+ * started, and one already running is thrown away when it finishes. Loads use the engine's
+ * {@link GoogleApiClient} and never connect or disconnect it; a load asked for before it is
+ * connected waits for {@link #onConnected()}. Icons are decoded straight to the icon size,
+ * into bitmaps the engine no longer needs where possible.
+ */
+class WatchIconLoader {
+  private static final String LOG_TAG = WatchIconLoader.class.getSimpleName();
+
+  private static final String ICON_PATH_PREFIX = "/sunshine-icon/";
+  private static final String ICON_KEY = "icon";
+  private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+  private static final int MSG_LOAD = 0;
+  private static final int MAX_REUSABLE_BITMAPS = 2;
+
+  interface Callback {
+    /**
+     * Called on the main thread with the icon last asked for.
+     */
+    void onIconLoaded(String iconHash, Bitmap icon);
+  }
+
+  private final GoogleApiClient mGoogleApiClient;
+  private final int mIconSize;
+  private final Callback mCallback;
+  private final WatchFaceMetrics mMetrics;
+  private final HandlerThread mThread;
+  private final Handler mHandler;
+  private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+  // Written on the main thread; the loader thread reads it to skip loads nobody wants
+  private volatile String mWantedHash;
+  private final ArrayDeque<Bitmap> mReusableBitmaps = new ArrayDeque<>();
+
+  WatchIconLoader(GoogleApiClient googleApiClient, int iconSize, Callback callback,
+                  WatchFaceMetrics metrics) {
+    mGoogleApiClient = googleApiClient;
+    mIconSize = iconSize;
+    mCallback = callback;
+    mMetrics = metrics;
+    mThread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+    mThread.start();
+    mHandler = new Handler(mThread.getLooper()) {
+      @Override
+      public void handleMessage(Message msg) {
+        if (msg.what == MSG_LOAD) {
+          handleLoad((String) msg.obj);
+        }
+      }
+    };
+  }
+
+  /**
+   * Starts loading an icon, instead of whatever was asked for before. Call on the main thread.
+   */
+  void load(String iconHash) {
+    if (!iconHash.equals(mWantedHash)) {
+      mMetrics.onIconLoadRequested();
+    }
+    mWantedHash = iconHash;
+    mHandler.removeMessages(MSG_LOAD);
+    if (mGoogleApiClient.isConnected()) {
+      mHandler.obtainMessage(MSG_LOAD, iconHash).sendToTarget();
+    }
+  }
+
+  /**
+   * Drops the icon asked for last, if it hasn't been delivered yet. Call on the main thread.
+   */
+  void cancel() {
+    mWantedHash = null;
+    mHandler.removeMessages(MSG_LOAD);
+  }
+
+  /**
+   * Starts a load that was waiting for the client to connect. Call on the main thread.
+   */
+  void onConnected() {
+    if (mWantedHash != null) {
+      load(mWantedHash);
+    }
+  }
+
+  /**
+   * Offers a bitmap that is no longer drawn anywhere to decode the next icon into.
+   */
+  void reuse(Bitmap bitmap) {
+    synchronized (mReusableBitmaps) {
+      if (bitmap.isMutable() && mReusableBitmaps.size() < MAX_REUSABLE_BITMAPS) {
+        mReusableBitmaps.add(bitmap);
+      }
+    }
+  }
+
+  void quit() {
+    cancel();
+    mThread.quit();
+  }
+
+  private void handleLoad(String iconHash) {
+    if (!iconHash.equals(mWantedHash)) {
+      mMetrics.onIconLoadSuperseded();
+      return;
+    }
+    long start = SystemClock.elapsedRealtime();
+    byte[] bytes = readIcon(iconHash);
+    if (bytes == null) {
+      mMetrics.onIconLoadFailed();
+      return;
+    }
+    if (!iconHash.equals(mWantedHash)) {
+      mMetrics.onIconLoadSuperseded();
+      return;
+    }
+    Bitmap reusable;
+    synchronized (mReusableBitmaps) {
+      reusable = mReusableBitmaps.poll();
+    }
+    Bitmap icon = decode(bytes, reusable);
+    if (icon == null) {
+      mMetrics.onIconLoadFailed();
+      return;
+    }
+    mMetrics.onIconLoaded(SystemClock.elapsedRealtime() - start);
+    deliver(iconHash, icon);
+  }
+
+  private void deliver(final String iconHash, final Bitmap icon) {
+    mMainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (iconHash.equals(mWantedHash)) {
+          mWantedHash = null;
+          mCallback.onIconLoaded(iconHash, icon);
+        } else {
+          // Superseded while it was decoding
+          mMetrics.onIconLoadSuperseded();
+          reuse(icon);
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads the PNG the phone put in the data item named after {@code iconHash}.
+   */
+  private byte[] readIcon(String iconHash) {
+    // No host, so this matches the item whichever node put it
+    Uri uri = new Uri.Builder()
+      .scheme(PutDataRequest.WEAR_URI_SCHEME)
+      .path(ICON_PATH_PREFIX + iconHash)
+      .build();
+    Asset asset;
+    DataItemBuffer items = Wearable.DataApi.getDataItems(mGoogleApiClient, uri)
+      .await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    try {
+      if (!items.getStatus().isSuccess() || items.getCount() == 0) {
+        Log.w(LOG_TAG, "No data item for icon " + iconHash);
+        return null;
+      }
+      asset = DataMapItem.fromDataItem(items.get(0)).getDataMap().getAsset(ICON_KEY);
+    } finally {
+      items.release();
+    }
+    if (asset == null) {
+      return null;
+    }
+
+    DataApi.GetFdForAssetResult result = Wearable.DataApi
+      .getFdForAsset(mGoogleApiClient, asset)
+      .await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    InputStream in = result.getInputStream();
+    if (in == null) {
+      Log.w(LOG_TAG, "Requested an unknown Asset.");
+      return null;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, count);
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      Log.e(LOG_TAG, "Couldn't read icon " + iconHash, e);
+      return null;
+    } finally {
+      result.release();
+    }
+  }
+
+  /**
+   * Decodes an icon so that its longer side is the icon size. The decoder subsamples by the
+   * largest power of two that keeps it at least that big, and scales the rest of the way by
+   * itself, so no second, scaled copy is made.
+   *
+   * @param reusable a mutable bitmap to decode into, or null
+   */
+  private Bitmap decode(byte[] bytes, Bitmap reusable) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    int size = Math.max(options.outWidth, options.outHeight);
+    if (size <= 0) {
+      Log.w(LOG_TAG, "Icon isn't an image");
+      return null;
+    }
+
+    int sampleSize = 1;
+    while (size / (sampleSize * 2) >= mIconSize) {
+      sampleSize *= 2;
+    }
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    options.inScaled = true;
+    options.inDensity = size / sampleSize;
+    options.inTargetDensity = mIconSize;
+    options.inMutable = true;
+    options.inBitmap = reusable;
+    Bitmap icon;
+    try {
+      icon = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    } catch (IllegalArgumentException e) {
+      // The bitmap offered for reuse was too small after all
+      options.inBitmap = null;
+      icon = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+    if (icon != null) {
+      // The decoder stamps the icon with the made up target density above, which would make
+      // a canvas scale it again; it is already in pixels.
+      icon.setDensity(Bitmap.DENSITY_NONE);
+    }
+    return icon;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.core.WeatherCondition;
+
+/**
+ * The condition art bundled with the watch face, the same as the phone app's Sunshine art
+ * pack. The phone only has to send its own icons for other art packs.
+ */
+final class WeatherIcons {
+
+  private WeatherIcons() {
+  }
+
+  /**
+   * @param weatherId from OpenWeatherMap API response
+   * @return resource id for the corresponding art, or -1 if no relation is found
+   */
+  static int getArtResource(int weatherId) {
+    WeatherCondition condition = WeatherCondition.forWeatherId(weatherId);
+    if (condition == null) {
+      return -1;
+    }
+    switch (condition) {
+      case STORM:
+      case TORNADO:
+        return R.drawable.art_storm;
+      case LIGHT_RAIN:
+        return R.drawable.art_light_rain;
+      case RAIN:
+        return R.drawable.art_rain;
+      case SNOW:
+        return R.drawable.art_snow;
+      case FOG:
+        return R.drawable.art_fog;
+      case CLEAR:
+        return R.drawable.art_clear;
+      case LIGHT_CLOUDS:
+        return R.drawable.art_light_clouds;
+      case CLOUDS:
+        return R.drawable.art_clouds;
+    }
+    return -1;
+  }
+}